@@ -0,0 +1,75 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The drivers of the semantic analysis: one walk of the AST per pass, a single walk for all of them, or the methods
+ * checked in parallel.
+ * <p>
+ * Each invocation analyses the programs as just parsed, as the compiler does, so they are parsed again before every
+ * invocation, outside of the measured time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalysisBenchmarks {
+
+    @Param({"cpf/2_semantic_analysis", "synthetic:50", "synthetic:500", "synthetic:methods=5;statements=2000"})
+    public String input;
+
+    @Param({"sequential", "fused", "parallel"})
+    public String driver;
+
+    private List<String> sources;
+    private Map<String, String> config;
+    private List<JmmParserResult> parsed;
+
+    private final JmmParserImpl parser = new JmmParserImpl();
+    private final JmmAnalysisImpl analysis = new JmmAnalysisImpl();
+
+    @Setup(Level.Trial)
+    public void load() {
+        sources = BenchmarkPrograms.load(input);
+        config = BenchmarkPrograms.getConfig();
+        config.put("fusedAnalysis", String.valueOf(driver.equals("fused")));
+        config.put("parallelAnalysis", String.valueOf(driver.equals("parallel")));
+    }
+
+    @Setup(Level.Invocation)
+    public void parse() {
+        parsed = new ArrayList<>();
+        for (var source : sources) {
+            parsed.add(parser.parse(source, config));
+        }
+    }
+
+    @Benchmark
+    public void semanticAnalysis(Blackhole blackhole) {
+        for (var parserResult : parsed) {
+            blackhole.consume(analysis.semanticAnalysis(parserResult));
+        }
+    }
+}
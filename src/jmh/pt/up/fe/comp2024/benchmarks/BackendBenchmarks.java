@@ -0,0 +1,89 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The two ways from OLLIR to a class file on disk: generating Jasmin code and assembling it with Jasmin, or writing
+ * the class file from the same instructions.
+ * <p>
+ * The backend does not change the OLLIR class, so the inputs are generated once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BackendBenchmarks {
+
+    @Param({"cpf/4_jasmin", "cpf/5_optimizations", "synthetic:50", "synthetic:500"})
+    public String input;
+
+    private List<OllirResult> results;
+    private File outputDir;
+
+    private final JasminBackendImpl jasminBackend = new JasminBackendImpl();
+    private final ClassFileBackendImpl classFileBackend = new ClassFileBackendImpl();
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        var config = BenchmarkPrograms.getConfig();
+        var parser = new JmmParserImpl();
+        var analysis = new JmmAnalysisImpl();
+        var optimization = new JmmOptimizationImpl();
+
+        results = new ArrayList<>();
+        for (var source : BenchmarkPrograms.load(input)) {
+            var semantics = optimization.optimize(analysis.semanticAnalysis(parser.parse(source, config)));
+            results.add(optimization.optimize(optimization.toOllir(semantics)));
+        }
+
+        outputDir = Files.createTempDirectory("jmm-backend").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        SpecsIo.deleteFolder(outputDir);
+    }
+
+    @Benchmark
+    public void jasminAssembler(Blackhole blackhole) {
+        for (var ollirResult : results) {
+            blackhole.consume(jasminBackend.toJasmin(ollirResult).compile(outputDir));
+        }
+    }
+
+    @Benchmark
+    public void classFileWriter(Blackhole blackhole) {
+        for (var ollirResult : results) {
+            blackhole.consume(classFileBackend.toJasmin(ollirResult).compile(outputDir));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.CompilerPipeline;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Java-- programs used as benchmark inputs.
+ * <p>
+ * An input is either a path relative to the course test folder ('test/pt/up/fe/comp'), naming a single program or a
+ * folder with several programs, or 'synthetic:...', a program made by {@link ProgramGenerator}.
+ */
+public class BenchmarkPrograms {
+
+    private static final String TEST_FOLDER = "test/pt/up/fe/comp";
+    private static final String SYNTHETIC = "synthetic:";
+    private static final long SEED = 42;
+
+    /**
+     * Config used by every benchmark, with every optimization enabled so that each stage has work to do.
+     */
+    public static Map<String, String> getConfig() {
+        var config = CompilerConfig.getDefault();
+        config.put("optimize", "true");
+        config.put("registerAllocation", "0");
+        return config;
+    }
+
+    /**
+     * @return the source code of the programs of the input that compile without errors
+     */
+    public static List<String> load(String input) {
+        List<String> sources = new ArrayList<>();
+
+        if (input.startsWith(SYNTHETIC)) {
+            sources.add(synthetic(input.substring(SYNTHETIC.length())));
+        } else {
+            var file = new File(TEST_FOLDER, input);
+            if (!file.exists()) {
+                throw new RuntimeException("Could not find benchmark input '" + file.getAbsolutePath()
+                        + "', benchmarks must run from the project folder");
+            }
+
+            var files = file.isDirectory() ? new ArrayList<>(SpecsIo.getFilesRecursive(file, "jmm")) : List.of(file);
+            files.stream().sorted().map(SpecsIo::read).forEach(sources::add);
+        }
+
+        // programs that are expected to fail would stop the pipeline early
+        var pipeline = new CompilerPipeline();
+        var config = getConfig();
+        sources.removeIf(source -> pipeline.compile(source, config).hasErrors());
+
+        if (sources.isEmpty()) {
+            throw new RuntimeException("Benchmark input '" + input + "' has no program that compiles");
+        }
+
+        return sources;
+    }
+
+    /**
+     * A generated program, e.g., 'synthetic:500' for 500 methods or 'synthetic:methods=5;statements=2000;locals=50'.
+     * Knobs are separated by ';' since JMH splits parameter values on commas. The knobs not given keep the defaults
+     * of {@link ProgramGenerator}.
+     */
+    private static String synthetic(String spec) {
+        var generator = new ProgramGenerator(SEED);
+
+        for (String knob : spec.split(";")) {
+            String[] parts = knob.split("=");
+            if (parts.length == 1) {
+                generator.methods(Integer.parseInt(parts[0].strip()));
+                continue;
+            }
+
+            int value = Integer.parseInt(parts[1].strip());
+            switch (parts[0].strip()) {
+                case "methods" -> generator.methods(value);
+                case "statements" -> generator.statements(value);
+                case "nesting" -> generator.nestingDepth(value);
+                case "expressions" -> generator.expressionDepth(value);
+                case "locals" -> generator.locals(value);
+                case "varargs" -> generator.varargsCalls(value);
+                default -> throw new RuntimeException("Unknown knob '" + parts[0] + "' in benchmark input '" + spec + "'");
+            }
+        }
+
+        return generator.generate("Synthetic");
+    }
+}
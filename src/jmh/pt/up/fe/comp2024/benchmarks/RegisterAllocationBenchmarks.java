@@ -0,0 +1,95 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.graph.Graph;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.optimization.Liveness;
+import pt.up.fe.comp2024.optimization.UseCounts;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The analyses behind register allocation, on methods with many locals and instructions.
+ * <p>
+ * None of them changes the OLLIR, so the methods are generated once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RegisterAllocationBenchmarks {
+
+    @Param({"cpf/5_optimizations", "synthetic:methods=1;locals=1000;statements=2000",
+            "synthetic:methods=1;locals=3000;statements=5000"})
+    public String input;
+
+    private List<Method> methods;
+    private List<Liveness> liveness;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        var config = BenchmarkPrograms.getConfig();
+        var parser = new JmmParserImpl();
+        var analysis = new JmmAnalysisImpl();
+        var optimization = new JmmOptimizationImpl();
+
+        methods = new ArrayList<>();
+        for (var source : BenchmarkPrograms.load(input)) {
+            var semantics = optimization.optimize(analysis.semanticAnalysis(parser.parse(source, config)));
+            var ollirClass = optimization.toOllir(semantics).getOllirClass();
+            ollirClass.buildCFGs();
+            methods.addAll(ollirClass.getMethods());
+        }
+
+        liveness = new ArrayList<>();
+        for (var method : methods) {
+            liveness.add(Liveness.analyse(method));
+        }
+    }
+
+    @Benchmark
+    public void liveness(Blackhole blackhole) {
+        for (var method : methods) {
+            blackhole.consume(Liveness.analyse(method));
+        }
+    }
+
+    @Benchmark
+    public void interferenceGraph(Blackhole blackhole) {
+        for (int i = 0; i < methods.size(); i++) {
+            blackhole.consume(new Graph(methods.get(i), liveness.get(i)));
+        }
+    }
+
+    /**
+     * Builds the graph again, as the coloring is kept by the graph once found.
+     */
+    @Benchmark
+    public void registerAllocation(Blackhole blackhole) {
+        for (int i = 0; i < methods.size(); i++) {
+            var graph = new Graph(methods.get(i), liveness.get(i));
+            int registers = graph.minRegisters();
+            graph.allocateRegisters(registers, UseCounts.analyse(methods.get(i), liveness.get(i)));
+            blackhole.consume(registers);
+        }
+    }
+}
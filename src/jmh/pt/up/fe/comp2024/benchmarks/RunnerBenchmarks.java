@@ -0,0 +1,69 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp2024.CompilerPipeline;
+import pt.up.fe.comp2024.backend.InMemoryRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running compiled programs as the tests do: assembling each class to a folder and starting a JVM for it, or
+ * assembling it in memory and running it in this JVM.
+ * <p>
+ * The programs are compiled once per trial, so only assembling and running them is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RunnerBenchmarks {
+
+    @Param({"cp2/apps"})
+    public String input;
+
+    private List<JasminResult> results;
+
+    private final InMemoryRunner runner = new InMemoryRunner();
+
+    @Setup(Level.Trial)
+    public void compile() {
+        var config = BenchmarkPrograms.getConfig();
+        var pipeline = new CompilerPipeline();
+
+        results = new ArrayList<>();
+        for (var source : BenchmarkPrograms.load(input)) {
+            results.add(pipeline.compile(source, config).toJasminResult(config));
+        }
+    }
+
+    @Benchmark
+    public void forked(Blackhole blackhole) {
+        for (var result : results) {
+            blackhole.consume(result.run());
+        }
+    }
+
+    @Benchmark
+    public void inMemory(Blackhole blackhole) {
+        for (var result : results) {
+            blackhole.consume(runner.run(result));
+        }
+    }
+}
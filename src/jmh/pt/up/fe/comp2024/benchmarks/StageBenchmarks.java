@@ -0,0 +1,179 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilerPipeline;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One benchmark per stage of the compiler, each one processing every program of the input.
+ * <p>
+ * Most stages change their input (the optimizations rewrite the AST, register allocation changes the OLLIR class),
+ * so the input of each stage is rebuilt before every invocation, outside of the measured time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StageBenchmarks {
+
+    @State(Scope.Thread)
+    public static class Programs {
+
+        @Param({"cp2/apps", "cpf/3_ollir", "cpf/5_optimizations", "synthetic:50", "synthetic:500",
+                "synthetic:methods=5;statements=2000", "synthetic:methods=20;locals=200;nesting=4"})
+        public String input;
+
+        public List<String> sources;
+        public Map<String, String> config;
+
+        @Setup(Level.Trial)
+        public void load() {
+            sources = BenchmarkPrograms.load(input);
+            config = BenchmarkPrograms.getConfig();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Parsed {
+
+        public List<JmmParserResult> results;
+
+        @Setup(Level.Invocation)
+        public void parse(Programs programs) {
+            var parser = new JmmParserImpl();
+            results = new ArrayList<>();
+            for (var source : programs.sources) {
+                results.add(parser.parse(source, programs.config));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Analysed {
+
+        public List<JmmSemanticsResult> results;
+
+        @Setup(Level.Invocation)
+        public void analyse(Programs programs) {
+            var parser = new JmmParserImpl();
+            var analysis = new JmmAnalysisImpl();
+            results = new ArrayList<>();
+            for (var source : programs.sources) {
+                results.add(analysis.semanticAnalysis(parser.parse(source, programs.config)));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Generated {
+
+        public List<OllirResult> results;
+
+        @Setup(Level.Invocation)
+        public void generate(Programs programs) {
+            var parser = new JmmParserImpl();
+            var analysis = new JmmAnalysisImpl();
+            var optimization = new JmmOptimizationImpl();
+            results = new ArrayList<>();
+            for (var source : programs.sources) {
+                var semantics = optimization.optimize(analysis.semanticAnalysis(parser.parse(source, programs.config)));
+                results.add(optimization.toOllir(semantics));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Optimized {
+
+        public List<OllirResult> results;
+
+        @Setup(Level.Invocation)
+        public void optimize(Generated generated) {
+            var optimization = new JmmOptimizationImpl();
+            results = new ArrayList<>();
+            for (var ollirResult : generated.results) {
+                results.add(optimization.optimize(ollirResult));
+            }
+        }
+    }
+
+    private final JmmParserImpl parser = new JmmParserImpl();
+    private final JmmAnalysisImpl analysis = new JmmAnalysisImpl();
+    private final JmmOptimizationImpl optimization = new JmmOptimizationImpl();
+    private final JasminBackendImpl backend = new JasminBackendImpl();
+    private final CompilerPipeline pipeline = new CompilerPipeline();
+
+    @Benchmark
+    public void parse(Programs programs, Blackhole blackhole) {
+        for (var source : programs.sources) {
+            blackhole.consume(parser.parse(source, programs.config));
+        }
+    }
+
+    @Benchmark
+    public void semanticAnalysis(Parsed parsed, Blackhole blackhole) {
+        for (var parserResult : parsed.results) {
+            blackhole.consume(analysis.semanticAnalysis(parserResult));
+        }
+    }
+
+    @Benchmark
+    public void optimizeAst(Analysed analysed, Blackhole blackhole) {
+        for (var semanticsResult : analysed.results) {
+            blackhole.consume(optimization.optimize(semanticsResult));
+        }
+    }
+
+    @Benchmark
+    public void toOllir(Analysed analysed, Blackhole blackhole) {
+        for (var semanticsResult : analysed.results) {
+            blackhole.consume(optimization.toOllir(semanticsResult));
+        }
+    }
+
+    @Benchmark
+    public void optimizeOllir(Generated generated, Blackhole blackhole) {
+        for (var ollirResult : generated.results) {
+            blackhole.consume(optimization.optimize(ollirResult));
+        }
+    }
+
+    @Benchmark
+    public void toJasmin(Optimized optimized, Blackhole blackhole) {
+        for (var ollirResult : optimized.results) {
+            blackhole.consume(backend.toJasmin(ollirResult));
+        }
+    }
+
+    @Benchmark
+    public void fullPipeline(Programs programs, Blackhole blackhole) {
+        for (var source : programs.sources) {
+            blackhole.consume(pipeline.compile(source, programs.config));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.backend.JasminAssembler;
+import pt.up.fe.comp2024.profiling.Profiler;
+import pt.up.fe.comp2024.utils.Formatter;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles several Java-- files in the same JVM, reusing one {@link CompilerPipeline} for all of them.
+ * <p>
+ * For each input a .j and a .class file named after the compiled class are written to the output folder
+ * (by default, the folder of the input file). With '-j=N', N files are compiled concurrently, and with '-c=DIR'
+ * the results are kept in a {@link CompilationCache}.
+ * <p>
+ * The outputs are always written in the order of the inputs, so when two inputs declare the same class the files of
+ * the last one are kept, however many jobs there are.
+ */
+public class BatchCompiler {
+
+    private final CompilerPipeline pipeline;
+    private final CompilationCache cache;
+    private final Profiler profile;
+    private final Map<String, String> config;
+    private final PrintStream out;
+
+    private final AtomicInteger compiled;
+    private final AtomicInteger failed;
+
+    public BatchCompiler(Map<String, String> config, PrintStream out) {
+        this.pipeline = new CompilerPipeline();
+        this.cache = CompilerConfig.getCacheDir(config).isPresent() ? CompilationCache.fromConfig(config) : null;
+        this.profile = CompilerConfig.isProfiling(config) ? new Profiler() : null;
+        this.config = config;
+        this.out = out;
+        this.compiled = new AtomicInteger();
+        this.failed = new AtomicInteger();
+    }
+
+    public int getCompiled() {
+        return compiled.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return the sum of the profiles of every compiled file, if profiling was enabled with '-t'
+     */
+    public Optional<Profiler> getProfile() {
+        return Optional.ofNullable(profile);
+    }
+
+    /**
+     * Compiles every input, printing the time taken by each file and a final summary.
+     *
+     * @return true if every input compiled without errors
+     */
+    public boolean compile(List<File> inputFiles) {
+        compiled.set(0);
+        failed.set(0);
+
+        int jobs = Math.min(CompilerConfig.getJobs(config), Math.max(inputFiles.size(), 1));
+
+        long start = System.nanoTime();
+
+        if (jobs == 1) {
+            for (int i = 0; i < inputFiles.size(); i++) {
+                finish(compile(inputFiles.get(i)), i, inputFiles.size());
+            }
+        } else {
+            compileConcurrently(inputFiles, jobs);
+        }
+
+        long totalTime = System.nanoTime() - start;
+        double seconds = totalTime / 1_000_000_000.0;
+        double throughput = seconds > 0 ? inputFiles.size() / seconds : 0;
+
+        out.printf("Compiled %d file(s), %d failed, in %.2f ms with %d job(s) (%.2f files/s)%n", getCompiled(),
+                getFailed(), toMillis(totalTime), jobs, throughput);
+        if (cache != null) {
+            out.printf("Cache: %d hit(s), %d miss(es)%n", cache.getHits(), cache.getMisses());
+        }
+
+        return getFailed() == 0;
+    }
+
+    private void compileConcurrently(List<File> inputFiles, int jobs) {
+        ExecutorService executor = Executors.newFixedThreadPool(jobs);
+        try {
+            List<Future<Compilation>> tasks = new ArrayList<>();
+            for (var inputFile : inputFiles) {
+                tasks.add(executor.submit(() -> compile(inputFile)));
+            }
+
+            // only the compilation runs in the pool, the outputs are written here in the order of the inputs
+            for (int i = 0; i < tasks.size(); i++) {
+                finish(tasks.get(i).get(), i, inputFiles.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while compiling files", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unexpected exception while compiling files", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The result of compiling an input, or the errors found while compiling it.
+     */
+    private record Compilation(File inputFile, CompilationResult result, List<String> errors, long time) {
+
+        boolean succeeded() {
+            return result != null && !result.hasErrors();
+        }
+    }
+
+    private Compilation compile(File inputFile) {
+        long fileStart = System.nanoTime();
+        List<String> errors = new ArrayList<>();
+        CompilationResult result;
+        try {
+            String code = SpecsIo.read(inputFile);
+            if (profile != null) {
+                Profiler.start();
+            }
+            try {
+                result = cache != null ? cache.compile(pipeline, code, config) : pipeline.compile(code, config);
+            } finally {
+                if (profile != null) {
+                    profile.merge(Profiler.stop());
+                }
+            }
+        } catch (Exception e) {
+            errors.add("Exception while compiling '" + inputFile + "': " + e.getMessage());
+            return new Compilation(inputFile, null, errors, System.nanoTime() - fileStart);
+        }
+
+        if (result.hasErrors()) {
+            result.getReports().stream()
+                    .filter(report -> report.getType() == ReportType.ERROR)
+                    .forEach(report -> errors.add(inputFile.getName() + ": " + report));
+        }
+
+        return new Compilation(inputFile, result, errors, System.nanoTime() - fileStart);
+    }
+
+    /**
+     * Writes the outputs of a compiled input and prints how long it took.
+     */
+    private void finish(Compilation compilation, int index, int total) {
+        var inputFile = compilation.inputFile();
+        long fileTime = compilation.time();
+
+        boolean success = compilation.succeeded();
+        if (success) {
+            long writeStart = System.nanoTime();
+            var outputDir = CompilerConfig.getOutputDir(config).orElse(inputFile.getAbsoluteFile().getParentFile());
+            writeOutputs(compilation.result(), outputDir);
+            fileTime += System.nanoTime() - writeStart;
+            compiled.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+
+        String status = success ? "ok" : Formatter.errorMsg("FAILED");
+
+        compilation.errors().forEach(error -> out.println(Formatter.errorMsg(error)));
+        out.printf("[%d/%d] %-50s %10.2f ms  %s%n", index + 1, total, inputFile.getName(),
+                toMillis(fileTime), status);
+    }
+
+    /**
+     * Writes the Jasmin code of the result and assembles it into a class file, both inside the given folder. A class
+     * file the backend already wrote is saved as it is.
+     *
+     * @return the generated class file
+     */
+    public static File writeOutputs(CompilationResult result, File outputDir) {
+        SpecsIo.mkdir(outputDir);
+
+        var jasminFile = new File(outputDir, result.getClassName() + ".j");
+        SpecsIo.write(jasminFile, result.getJasminCode());
+        if (result.getClassFile() != null) {
+            return result.toJasminResult(Collections.emptyMap()).compile(outputDir);
+        }
+        return JasminAssembler.assemble(jasminFile, outputDir);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,267 @@
+package pt.up.fe.comp2024;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.utils.HashUtils;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-disk cache of compilation results, addressed by the content of what is compiled.
+ * <p>
+ * The key is a hash of the source code, of the options that change the output ('optimize', 'registerAllocation' and
+ * 'classFile') and of the compiler version, so an entry never has to be invalidated: when anything that matters
+ * changes, the key changes too. Each entry is a JSON file with the OLLIR, the Jasmin code, the class file written by
+ * the backend, if any, and the reports.
+ * When the entries take more than the maximum size, the least recently used ones are deleted.
+ */
+public class CompilationCache {
+
+    /**
+     * Stage reported in {@link CompilationResult#getStageTimes()} when the result comes from the cache.
+     */
+    public static final String LOOKUP = "cacheLookup";
+
+    /**
+     * Bump when the format of the entries changes.
+     */
+    private static final String FORMAT_VERSION = "2";
+
+    private static final String EXTENSION = ".json";
+
+    private static String compilerVersion;
+
+    private final File cacheDir;
+    private final long maxSize;
+    private final Gson gson;
+
+    /**
+     * Entries in access order, with their size in bytes.
+     */
+    private final LinkedHashMap<String, Long> entries;
+    private long size;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    public CompilationCache(File cacheDir, long maxSize) {
+        this.cacheDir = cacheDir;
+        this.maxSize = maxSize;
+        this.gson = new Gson();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.size = 0;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+
+        SpecsIo.mkdir(cacheDir);
+        loadEntries();
+    }
+
+    public static CompilationCache fromConfig(Map<String, String> config) {
+        return new CompilationCache(CompilerConfig.getCacheDir(config).orElseThrow(),
+                CompilerConfig.getCacheSize(config));
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the cached result for the source, or compiles it with the given pipeline and caches the result.
+     * On a hit none of the stages run, not even the parser.
+     */
+    public CompilationResult compile(CompilerPipeline pipeline, String code, Map<String, String> config) {
+        long start = System.nanoTime();
+        String key = getKey(code, config);
+
+        var cached = get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            var stageTimes = CompilationResult.newStageTimes();
+            stageTimes.put(LOOKUP, System.nanoTime() - start);
+            return new CompilationResult(cached.getClassName(), cached.getOllirCode(), cached.getJasminCode(),
+                    cached.getClassFile(), cached.getReports(), stageTimes);
+        }
+
+        misses.incrementAndGet();
+        var result = pipeline.compile(code, config);
+
+        // exceptions might not happen again, do not keep them around
+        boolean hasException = result.getReports().stream().anyMatch(report -> report.getException().isPresent());
+        if (!hasException) {
+            put(key, result);
+        }
+
+        return result;
+    }
+
+    public String getKey(String code, Map<String, String> config) {
+        return HashUtils.sha256(getCompilerVersion(),
+                String.valueOf(CompilerConfig.getOptimize(config)),
+                String.valueOf(CompilerConfig.getRegisterAllocation(config)),
+                String.valueOf(CompilerConfig.isClassFile(config)),
+                code);
+    }
+
+    private CompilationResult get(String key) {
+        var entryFile = getEntryFile(key);
+
+        synchronized (this) {
+            if (!entries.containsKey(key)) {
+                return null;
+            }
+        }
+
+        try {
+            var json = gson.fromJson(Files.readString(entryFile.toPath()), JsonObject.class);
+
+            List<Report> reports = new ArrayList<>();
+            json.getAsJsonArray("reports").forEach(report -> reports.add(ReportUtils.fromJson(report.getAsJsonObject())));
+
+            // keep the file times in line with the access order, for the next time the cache is loaded
+            entryFile.setLastModified(System.currentTimeMillis());
+
+            String classFile = getString(json, "classFile");
+
+            return new CompilationResult(getString(json, "className"), getString(json, "ollir"),
+                    getString(json, "jasmin"), classFile == null ? null : Base64.getDecoder().decode(classFile),
+                    reports, CompilationResult.newStageTimes());
+        } catch (IOException | JsonParseException | IllegalStateException | IllegalArgumentException
+                 | NullPointerException e) {
+            // entry deleted by another process or corrupted, treat it as a miss
+            remove(key);
+            return null;
+        }
+    }
+
+    private void put(String key, CompilationResult result) {
+        var json = new JsonObject();
+        json.addProperty("className", result.getClassName());
+        json.addProperty("ollir", result.getOllirCode());
+        json.addProperty("jasmin", result.getJasminCode());
+        if (result.getClassFile() != null) {
+            json.addProperty("classFile", Base64.getEncoder().encodeToString(result.getClassFile()));
+        }
+
+        var reports = new JsonArray();
+        result.getReports().forEach(report -> reports.add(ReportUtils.toJson(report)));
+        json.add("reports", reports);
+
+        var entryFile = getEntryFile(key);
+        try {
+            // write to a temporary file first, other processes might be reading the same entry
+            var tempFile = File.createTempFile(key, ".tmp", cacheDir);
+            Files.writeString(tempFile.toPath(), gson.toJson(json));
+            Files.move(tempFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the cache is only an optimization, compiling must not fail because of it
+            return;
+        }
+
+        synchronized (this) {
+            var previousSize = entries.put(key, entryFile.length());
+            size += entryFile.length() - (previousSize == null ? 0 : previousSize);
+            evict();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        var entrySize = entries.remove(key);
+        if (entrySize != null) {
+            size -= entrySize;
+        }
+        getEntryFile(key).delete();
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits in the maximum size.
+     */
+    private synchronized void evict() {
+        var iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            var entry = iterator.next();
+            iterator.remove();
+            size -= entry.getValue();
+            getEntryFile(entry.getKey()).delete();
+        }
+    }
+
+    private void loadEntries() {
+        var files = cacheDir.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (var file : files) {
+            var key = file.getName().substring(0, file.getName().length() - EXTENSION.length());
+            entries.put(key, file.length());
+            size += file.length();
+        }
+
+        evict();
+    }
+
+    private File getEntryFile(String key) {
+        return new File(cacheDir, key + EXTENSION);
+    }
+
+    private static String getString(JsonObject json, String property) {
+        var element = json.get(property);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    /**
+     * The version of the compiler is taken from the jar or class folder it was loaded from, so that entries
+     * written by a different build of the compiler are never used.
+     */
+    static synchronized String getCompilerVersion() {
+        if (compilerVersion != null) {
+            return compilerVersion;
+        }
+
+        long fingerprint = 0;
+        try {
+            var location = new File(CompilationCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            List<File> files = new ArrayList<>(location.isDirectory()
+                    ? SpecsIo.getFilesRecursive(location, "class")
+                    : List.of(location));
+            files.sort(null);
+            for (var file : files) {
+                fingerprint = 31 * fingerprint + file.length();
+                fingerprint = 31 * fingerprint + file.lastModified();
+            }
+        } catch (URISyntaxException | SecurityException | NullPointerException e) {
+            // no code source, rely on the format version only
+        }
+
+        compilerVersion = FORMAT_VERSION + "-" + Long.toHexString(fingerprint);
+        return compilerVersion;
+    }
+}
@@ -0,0 +1,93 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.backend.ClassFileResult;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of running the whole pipeline over a single Java-- source.
+ * <p>
+ * Only keeps the textual artifacts (OLLIR and Jasmin) so that it does not hold on to the AST or the OLLIR class.
+ */
+public class CompilationResult {
+
+    private final String className;
+    private final String ollirCode;
+    private final String jasminCode;
+    private final byte[] classFile;
+    private final List<Report> reports;
+    private final Map<String, Long> stageTimes;
+
+    public CompilationResult(String className, String ollirCode, String jasminCode, List<Report> reports,
+                             Map<String, Long> stageTimes) {
+        this(className, ollirCode, jasminCode, null, reports, stageTimes);
+    }
+
+    /**
+     * @param classFile the class file written by the backend, or null if it is left to the Jasmin assembler
+     */
+    public CompilationResult(String className, String ollirCode, String jasminCode, byte[] classFile,
+                             List<Report> reports, Map<String, Long> stageTimes) {
+        this.className = className;
+        this.ollirCode = ollirCode;
+        this.jasminCode = jasminCode;
+        this.classFile = classFile;
+        this.reports = reports;
+        this.stageTimes = stageTimes;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getOllirCode() {
+        return ollirCode;
+    }
+
+    public String getJasminCode() {
+        return jasminCode;
+    }
+
+    /**
+     * @return the class file, if the backend wrote it (with '-b'), or null
+     */
+    public byte[] getClassFile() {
+        return classFile;
+    }
+
+    public List<Report> getReports() {
+        return Collections.unmodifiableList(reports);
+    }
+
+    /**
+     * @return the wall time of each executed stage, in nanoseconds, in execution order
+     */
+    public Map<String, Long> getStageTimes() {
+        return Collections.unmodifiableMap(stageTimes);
+    }
+
+    public long getTotalTime() {
+        return stageTimes.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public boolean hasErrors() {
+        return jasminCode == null || ReportUtils.anyError(reports);
+    }
+
+    public JasminResult toJasminResult(Map<String, String> config) {
+        if (classFile != null) {
+            return new ClassFileResult(className, jasminCode, classFile, reports, config);
+        }
+        return new JasminResult(className, jasminCode, reports, config);
+    }
+
+    static Map<String, Long> newStageTimes() {
+        return new LinkedHashMap<>();
+    }
+}
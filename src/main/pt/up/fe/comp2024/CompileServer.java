@@ -0,0 +1,236 @@
+package pt.up.fe.comp2024;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import pt.up.fe.comp2024.profiling.Profiler;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-running compiler that keeps the JVM, and therefore the JIT-compiled pipeline, warm between compilations.
+ * <p>
+ * Uses a line protocol: each request is a single line with a JSON object
+ * {@code {"id": ..., "source": "<Java-- code>", "config": {"optimize": "true", ...}}} and each response is a single
+ * line with the reports, the OLLIR and Jasmin code and the time taken by each stage, in milliseconds. With
+ * {@code "profile": "true"} in the config, the response also has the detailed profile of the compilation.
+ * The protocol is served over stdin/stdout, or over a socket bound to the loopback address.
+ * <p>
+ * The pipeline is incremental, so resending a class where only some methods changed only generates those methods.
+ */
+public class CompileServer {
+
+    private static final String WARM_UP_CODE = """
+            import io;
+            class WarmUp {
+                int field;
+                public int sum(int[] a) {
+                    int i;
+                    int total;
+                    i = 0;
+                    total = 0;
+                    while (i < a.length) {
+                        total = total + a[i];
+                        i = i + 1;
+                    }
+                    if (total < 10 && true) {
+                        total = total * 2;
+                    } else {
+                        total = total / 2;
+                    }
+                    return total;
+                }
+                public static void main(String[] args) {
+                    WarmUp w;
+                    int[] a;
+                    w = new WarmUp();
+                    a = [1, 2, 3];
+                    io.println(w.sum(a));
+                }
+            }
+            """;
+
+    private static final int WARM_UP_ITERATIONS = 50;
+
+    private final CompilerPipeline pipeline;
+    private final CompilationCache cache;
+    private final Gson gson;
+
+    public CompileServer() {
+        this(null);
+    }
+
+    /**
+     * @param cache cache shared by every request, or null to always compile
+     */
+    public CompileServer(CompilationCache cache) {
+        this(new CompilerPipeline(true), cache);
+    }
+
+    CompileServer(CompilerPipeline pipeline, CompilationCache cache) {
+        this.pipeline = pipeline;
+        this.cache = cache;
+        this.gson = new Gson();
+    }
+
+    /**
+     * Compiles a small program a few times so that the first real request does not pay for class loading
+     * and interpretation of the pipeline.
+     */
+    public void warmUp() {
+        var config = CompilerConfig.getDefault();
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            pipeline.compile(WARM_UP_CODE, config);
+        }
+    }
+
+    /**
+     * Serves requests from the given input until it is closed.
+     */
+    public void serve(InputStream input, OutputStream output) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        var writer = new PrintWriter(output, false, StandardCharsets.UTF_8);
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+
+            writer.println(handle(line));
+            writer.flush();
+        }
+    }
+
+    /**
+     * Accepts connections on the loopback address until the process is stopped.
+     * Each connection is served in its own thread and may send any number of requests.
+     */
+    public void serve(int port) throws IOException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        try (var serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.err.println("Compile server listening on " + serverSocket.getLocalSocketAddress());
+
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                executor.submit(() -> {
+                    try (socket) {
+                        serve(socket.getInputStream(), socket.getOutputStream());
+                    } catch (IOException e) {
+                        System.err.println("Connection closed with error: " + e.getMessage());
+                    }
+                    return null;
+                });
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Handles a single request.
+     *
+     * @param request a line with the request in JSON
+     * @return the response in JSON, in a single line
+     */
+    public String handle(String request) {
+        long start = System.nanoTime();
+
+        JsonObject response = new JsonObject();
+        JsonObject json;
+        try {
+            json = gson.fromJson(request, JsonObject.class);
+        } catch (JsonParseException e) {
+            return error(response, "Invalid request: " + e.getMessage());
+        }
+
+        if (json == null) {
+            return error(response, "Request must have a 'source' field");
+        }
+
+        if (json.has("id")) {
+            response.add("id", json.get("id"));
+        }
+
+        if (!isString(json.get("source"))) {
+            return error(response, "Request must have a 'source' field with a string");
+        }
+
+        Map<String, String> config = CompilerConfig.getDefault();
+        if (json.has("config")) {
+            if (!json.get("config").isJsonObject()) {
+                return error(response, "The 'config' field must be an object");
+            }
+            for (var entry : json.getAsJsonObject("config").entrySet()) {
+                if (!entry.getValue().isJsonPrimitive()) {
+                    return error(response, "The value of '" + entry.getKey() + "' in 'config' must be a string");
+                }
+                config.put(entry.getKey(), entry.getValue().getAsString());
+            }
+        }
+
+        String code = json.get("source").getAsString();
+        boolean profiling = CompilerConfig.isProfiling(config);
+        if (profiling) {
+            Profiler.start();
+        }
+
+        CompilationResult result;
+        try {
+            result = cache != null ? cache.compile(pipeline, code, config) : pipeline.compile(code, config);
+        } catch (RuntimeException e) {
+            // a bug in the compiler must not take down the server, only this request fails
+            return error(response, "Exception while compiling: " + e);
+        } finally {
+            if (profiling) {
+                response.add("profile", Profiler.stop().toJson());
+            }
+        }
+
+        response.addProperty("success", !result.hasErrors());
+        response.addProperty("className", result.getClassName());
+        response.addProperty("ollir", result.getOllirCode());
+        response.addProperty("jasmin", result.getJasminCode());
+
+        var reports = new JsonArray();
+        result.getReports().forEach(report -> reports.add(ReportUtils.toJson(report)));
+        response.add("reports", reports);
+
+        var timings = new JsonObject();
+        result.getStageTimes().forEach((stage, nanos) -> timings.addProperty(stage, toMillis(nanos)));
+        timings.addProperty("total", toMillis(System.nanoTime() - start));
+        response.add("timings", timings);
+
+        return gson.toJson(response);
+    }
+
+    private String error(JsonObject response, String message) {
+        response.addProperty("success", false);
+        response.addProperty("error", message);
+        return gson.toJson(response);
+    }
+
+    private static boolean isString(JsonElement element) {
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isString();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -1,7 +1,11 @@
 package pt.up.fe.comp2024;
 
+import pt.up.fe.specs.util.SpecsIo;
+
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -10,6 +14,19 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String OUTPUT_DIR = "outputDir";
+    private static final String JOBS = "jobs";
+    private static final String SERVER = "server";
+    private static final String CACHE_DIR = "cacheDir";
+    private static final String CACHE_SIZE = "cacheSize";
+    private static final String PROFILE = "profile";
+    private static final String CLASS_FILE = "classFile";
+    private static final String FUSED_ANALYSIS = "fusedAnalysis";
+    private static final String PARALLEL_ANALYSIS = "parallelAnalysis";
+
+    private static final String DEFAULT_PROFILE_FILE = "jmm-profile.json";
+
+    private static final String INPUT_SEPARATOR = ",";
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +35,15 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("d", CompilerConfig.OUTPUT_DIR);
+        shortToLong.put("j", CompilerConfig.JOBS);
+        shortToLong.put("s", CompilerConfig.SERVER);
+        shortToLong.put("c", CompilerConfig.CACHE_DIR);
+        shortToLong.put("m", CompilerConfig.CACHE_SIZE);
+        shortToLong.put("t", CompilerConfig.PROFILE);
+        shortToLong.put("b", CompilerConfig.CLASS_FILE);
+        shortToLong.put("f", CompilerConfig.FUSED_ANALYSIS);
+        shortToLong.put("p", CompilerConfig.PARALLEL_ANALYSIS);
     }
 
 
@@ -32,14 +58,155 @@ public class CompilerConfig {
         return Optional.of(new File(inputFile));
     }
 
+    /**
+     * The '-i' option accepts a single file, a folder or a comma-separated list of both.
+     * Folders are expanded to every .jmm file inside them, recursively.
+     *
+     * @return the input files, in the order they were given
+     */
+    public static List<File> getInputFiles(Map<String, String> config) {
+        var inputFiles = new ArrayList<File>();
+        var inputs = config.get(INPUT_FILE);
+
+        if (inputs == null) {
+            return inputFiles;
+        }
+
+        for (String input : inputs.split(INPUT_SEPARATOR)) {
+            var file = new File(input);
+            if (file.isDirectory()) {
+                var jmmFiles = new ArrayList<>(SpecsIo.getFilesRecursive(file, "jmm"));
+                jmmFiles.sort(null);
+                inputFiles.addAll(jmmFiles);
+            } else {
+                inputFiles.add(file);
+            }
+        }
+
+        return inputFiles;
+    }
+
+    /**
+     * @return true if '-i' names more than one file or a folder
+     */
+    public static boolean isBatch(Map<String, String> config) {
+        var inputs = config.get(INPUT_FILE);
+        return inputs != null && (inputs.contains(INPUT_SEPARATOR) || new File(inputs).isDirectory());
+    }
+
+    public static Optional<File> getOutputDir(Map<String, String> config) {
+        var outputDir = config.get(OUTPUT_DIR);
+
+        if (outputDir == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(outputDir));
+    }
+
+    /**
+     * @return true if the compiler should run as a server, with '-s' (stdin/stdout) or '-s=PORT' (socket)
+     */
+    public static boolean isServer(Map<String, String> config) {
+        return config.containsKey(SERVER);
+    }
+
+    /**
+     * @return the port given to '-s=PORT', or empty if requests are read from stdin
+     */
+    public static Optional<Integer> getServerPort(Map<String, String> config) {
+        var server = config.get(SERVER);
+
+        if (server == null || server.equals("true")) {
+            return Optional.empty();
+        }
+
+        return Optional.of(Integer.parseInt(server));
+    }
+
+    public static Optional<File> getCacheDir(Map<String, String> config) {
+        var cacheDir = config.get(CACHE_DIR);
+
+        if (cacheDir == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(cacheDir));
+    }
+
+    /**
+     * The '-m' option gives the maximum size of the compilation cache in megabytes.
+     *
+     * @return the maximum size of the compilation cache, in bytes (64 MB by default)
+     */
+    public static long getCacheSize(Map<String, String> config) {
+        long megabytes = Long.parseLong(config.getOrDefault(CACHE_SIZE, "64"));
+        if (megabytes < 0) {
+            throw new RuntimeException("Expected a non-negative cache size, got " + megabytes);
+        }
+        return megabytes * 1024 * 1024;
+    }
+
+    /**
+     * @return true if the time and memory taken by each stage should be reported, with '-t' or '-t=FILE'
+     */
+    public static boolean isProfiling(Map<String, String> config) {
+        return config.containsKey(PROFILE);
+    }
+
+    /**
+     * @return the JSON file given to '-t=FILE', or 'jmm-profile.json' inside the output folder (or the current folder)
+     */
+    public static File getProfileFile(Map<String, String> config) {
+        var profileFile = config.get(PROFILE);
+
+        if (profileFile == null || profileFile.equals("true")) {
+            return new File(getOutputDir(config).orElse(new File(".")), DEFAULT_PROFILE_FILE);
+        }
+
+        return new File(profileFile);
+    }
+
     public static boolean getOptimize(Map<String, String> config) {
         return Boolean.parseBoolean(config.getOrDefault(OPTIMIZE, "false"));
     }
 
+    /**
+     * @return true if the backend should write the class file itself with '-b', instead of the Jasmin assembler
+     */
+    public static boolean isClassFile(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(CLASS_FILE, "false"));
+    }
+
+    /**
+     * @return true if the semantic analysis should run all its passes in a single walk of the AST with '-f'
+     */
+    public static boolean isFusedAnalysis(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(FUSED_ANALYSIS, "false"));
+    }
+
+    /**
+     * @return true if the semantic analysis should check the methods in parallel with '-p'
+     */
+    public static boolean isParallelAnalysis(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(PARALLEL_ANALYSIS, "false"));
+    }
+
     public static int getRegisterAllocation(Map<String, String> config) {
         return Integer.parseInt(config.getOrDefault(REGISTER, "-1"));
     }
 
+    /**
+     * @return the number of files compiled concurrently in batch mode, at least 1
+     */
+    public static int getJobs(Map<String, String> config) {
+        int jobs = Integer.parseInt(config.getOrDefault(JOBS, "1"));
+        if (jobs < 1) {
+            throw new RuntimeException("Option '-j' expects a positive number of jobs, got " + jobs);
+        }
+        return jobs;
+    }
+
 
     public static Map<String, String> getDefault() {
 
@@ -89,23 +256,35 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
+        // in server mode the sources come with each request
+        if (isServer(config)) {
+            getServerPort(config);
+            getCacheSize(config);
+            return config;
+        }
+
         if (!config.containsKey(INPUT_FILE)) {
 
             throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
         }
 
-        // make sure we save the absolute path of the input file
-        var inputFile = new File(config.get(INPUT_FILE));
-        if (!inputFile.isFile()) {
-            throw new RuntimeException("Could not find input file '" + inputFile + "'");
+        // make sure we save the absolute path of the input files
+        List<String> absolutePaths = new ArrayList<>();
+        for (String input : config.get(INPUT_FILE).split(INPUT_SEPARATOR)) {
+            var inputFile = new File(input);
+            if (!inputFile.isFile() && !inputFile.isDirectory()) {
+                throw new RuntimeException("Could not find input file '" + inputFile + "'");
+            }
+            absolutePaths.add(inputFile.getAbsolutePath());
         }
 
-        var absolutePath = inputFile.getAbsolutePath();
-        config.put(INPUT_FILE, absolutePath);
+        config.put(INPUT_FILE, String.join(INPUT_SEPARATOR, absolutePaths));
 
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getJobs(config);
+        getCacheSize(config);
 
         return config;
     }
@@ -0,0 +1,146 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
+import pt.up.fe.comp2024.backend.ClassFileResult;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.profiling.Profiler;
+import pt.up.fe.comp2024.utils.FragmentCache;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Runs every stage of the compiler over a Java-- source.
+ * <p>
+ * The stage implementations are created once and reused by every call to {@link #compile(String, Map)}, so a
+ * single instance can compile many inputs without paying the class loading and warm-up cost again.
+ * <p>
+ * An incremental pipeline also keeps the OLLIR and Jasmin code of every method it generates, and reuses it when a
+ * method with the same code is compiled again in the same class context, so editing one method of a large class
+ * only generates that method again.
+ */
+public class CompilerPipeline {
+
+    public static final String PARSE = "parse";
+    public static final String SEMANTIC = "semantic";
+    public static final String AST_OPTIMIZE = "astOptimize";
+    public static final String OLLIR = "ollir";
+    public static final String OLLIR_OPTIMIZE = "ollirOptimize";
+    public static final String JASMIN = "jasmin";
+
+    private static final int METHOD_CACHE_CAPACITY = 4096;
+
+    private final JmmParserImpl parser;
+    private final JmmAnalysisImpl analysis;
+    private final JmmOptimizationImpl optimization;
+    private final JasminBackendImpl backend;
+    private final ClassFileBackendImpl classFileBackend;
+
+    private final FragmentCache ollirMethods;
+    private final FragmentCache jasminMethods;
+
+    public CompilerPipeline() {
+        this(false);
+    }
+
+    public CompilerPipeline(boolean incremental) {
+        this.ollirMethods = incremental ? new FragmentCache(METHOD_CACHE_CAPACITY) : null;
+        this.jasminMethods = incremental ? new FragmentCache(METHOD_CACHE_CAPACITY) : null;
+
+        this.parser = new JmmParserImpl();
+        this.analysis = new JmmAnalysisImpl();
+        this.optimization = new JmmOptimizationImpl(ollirMethods);
+        this.backend = new JasminBackendImpl(jasminMethods);
+        this.classFileBackend = new ClassFileBackendImpl();
+    }
+
+    /**
+     * @return the cache of the OLLIR code of each method, if the pipeline is incremental
+     */
+    public Optional<FragmentCache> getOllirMethods() {
+        return Optional.ofNullable(ollirMethods);
+    }
+
+    /**
+     * @return the cache of the Jasmin code of each method, if the pipeline is incremental
+     */
+    public Optional<FragmentCache> getJasminMethods() {
+        return Optional.ofNullable(jasminMethods);
+    }
+
+    public CompilationResult compile(String code, Map<String, String> config) {
+        var stageTimes = CompilationResult.newStageTimes();
+
+        JmmParserResult parserResult = time(PARSE, stageTimes, () -> {
+            var result = parser.parse(code, config);
+            if (result.getRootNode() != null && Profiler.isActive()) {
+                Profiler.count(result.getRootNode().getDescendants().size() + 1, "nodes");
+            }
+            return result;
+        });
+        if (parserResult.getRootNode() == null || ReportUtils.anyError(parserResult.getReports())) {
+            return new CompilationResult(null, null, null, parserResult.getReports(), stageTimes);
+        }
+
+        JmmSemanticsResult semanticsResult = time(SEMANTIC, stageTimes, () -> analysis.semanticAnalysis(parserResult));
+        if (ReportUtils.anyError(semanticsResult.getReports())) {
+            return new CompilationResult(null, null, null, semanticsResult.getReports(), stageTimes);
+        }
+
+        OllirResult ollirResult;
+        try {
+            var optimizedSemantics = time(AST_OPTIMIZE, stageTimes, () -> optimization.optimize(semanticsResult));
+            var generatedOllir = time(OLLIR, stageTimes, () -> optimization.toOllir(optimizedSemantics));
+            ollirResult = time(OLLIR_OPTIMIZE, stageTimes, () -> optimization.optimize(generatedOllir));
+        } catch (Exception e) {
+            return failed(Stage.OPTIMIZATION, semanticsResult.getReports(), e, stageTimes);
+        }
+
+        String className = ollirResult.getOllirClass().getClassName();
+        if (ReportUtils.anyError(ollirResult.getReports())) {
+            return new CompilationResult(className, ollirResult.getOllirCode(), null, ollirResult.getReports(), stageTimes);
+        }
+
+        JasminResult jasminResult;
+        try {
+            jasminResult = time(JASMIN, stageTimes, () -> CompilerConfig.isClassFile(config)
+                    ? classFileBackend.toJasmin(ollirResult)
+                    : backend.toJasmin(ollirResult));
+        } catch (Exception e) {
+            return failed(Stage.GENERATION, ollirResult.getReports(), e, stageTimes);
+        }
+
+        byte[] classFile = jasminResult instanceof ClassFileResult result ? result.getClassFile() : null;
+        return new CompilationResult(className, ollirResult.getOllirCode(), jasminResult.getJasminCode(), classFile,
+                jasminResult.getReports(), stageTimes);
+    }
+
+    private static CompilationResult failed(Stage stage, List<Report> previousReports, Exception e,
+                                            Map<String, Long> stageTimes) {
+        List<Report> reports = new ArrayList<>(previousReports);
+        reports.add(Report.newError(stage, -1, -1, "Exception during " + stage.name().toLowerCase() + " stage", e));
+        return new CompilationResult(null, null, null, reports, stageTimes);
+    }
+
+    private static <T> T time(String stage, Map<String, Long> stageTimes, Supplier<T> supplier) {
+        long start = System.nanoTime();
+        try {
+            return Profiler.measure(stage, supplier);
+        } finally {
+            stageTimes.put(stage, System.nanoTime() - start);
+        }
+    }
+}
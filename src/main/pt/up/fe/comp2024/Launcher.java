@@ -1,17 +1,11 @@
 package pt.up.fe.comp2024;
 
 import pt.up.fe.comp.TestUtils;
-import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.jasmin.JasminResult;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
-import pt.up.fe.comp.jmm.parser.JmmParserResult;
-import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
-import pt.up.fe.comp2024.backend.JasminBackendImpl;
-import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
-import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.profiling.Profiler;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Map;
 
@@ -22,43 +16,80 @@ public class Launcher {
 
         Map<String, String> config = CompilerConfig.parseArgs(args);
 
+        // Keep running, compiling the sources sent by clients
+        if (CompilerConfig.isServer(config)) {
+            runServer(config);
+            return;
+        }
+
+        // Several inputs, compile all of them in this JVM
+        if (CompilerConfig.isBatch(config)) {
+            var batchCompiler = new BatchCompiler(config, System.out);
+            boolean success = batchCompiler.compile(CompilerConfig.getInputFiles(config));
+            batchCompiler.getProfile().ifPresent(profile -> printProfile(profile, config));
+            if (!success) {
+                System.exit(1);
+            }
+            return;
+        }
+
         var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
         String code = SpecsIo.read(inputFile);
 
-        // Parsing stage
-        JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
-        TestUtils.noErrors(parserResult.getReports());
-
-        // Print AST
-        //System.out.println(parserResult.getRootNode().toTree());
+        if (CompilerConfig.isProfiling(config)) {
+            Profiler.start();
+        }
 
-        // Semantic Analysis stage
-        JmmAnalysisImpl sema = new JmmAnalysisImpl();
-        JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
-        TestUtils.noErrors(semanticsResult.getReports());
+        // Reuse the result of a previous compilation of the same source, if there is one
+        var pipeline = new CompilerPipeline();
+        CompilationResult result = CompilerConfig.getCacheDir(config).isPresent()
+                ? CompilationCache.fromConfig(config).compile(pipeline, code, config)
+                : pipeline.compile(code, config);
 
+        if (CompilerConfig.isProfiling(config)) {
+            printProfile(Profiler.stop(), config);
+        }
 
-        // Optimization stage
-        JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
-        OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
-        TestUtils.noErrors(ollirResult.getReports());
+        TestUtils.noErrors(result.getReports());
 
         // Print OLLIR code
-        System.out.println(ollirResult.getOllirCode());
-
-        // Code generation stage
-        JasminBackendImpl jasminGen = new JasminBackendImpl();
-        JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
-        TestUtils.noErrors(jasminResult.getReports());
+        System.out.println(result.getOllirCode());
 
         // Print Jasmin code
-        //System.out.println(jasminResult.getJasminCode());
+        //System.out.println(result.getJasminCode());
+
+        result.toJasminResult(Collections.emptyMap()).run();
+    }
+
+    /**
+     * Prints the time and memory taken by each stage, and saves them as JSON.
+     */
+    static void printProfile(Profiler profiler, Map<String, String> config) {
+        System.out.print(profiler.toTable());
 
-        TestUtils.runJasmin(jasminResult.getJasminCode(), Collections.emptyMap());
+        var profileFile = CompilerConfig.getProfileFile(config);
+        SpecsIo.write(profileFile, profiler.toJsonString());
+        System.out.println("Profile saved to " + profileFile.getAbsolutePath());
+    }
+
+    private static void runServer(Map<String, String> config) {
+        var cache = CompilerConfig.getCacheDir(config).isPresent() ? CompilationCache.fromConfig(config) : null;
+        var server = new CompileServer(cache);
+        server.warmUp();
+
+        try {
+            var port = CompilerConfig.getServerPort(config);
+            if (port.isPresent()) {
+                server.serve(port.get());
+            } else {
+                server.serve(System.in, System.out);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Compile server stopped with an error", e);
+        }
     }
 
 }
@@ -7,17 +7,28 @@ import pt.up.fe.comp.jmm.report.Report;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiFunction;
 
 /**
  *
  */
 public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Void> implements AnalysisPass {
 
+    private static final BiFunction<JmmNode, SymbolTable, Void> DEFAULT_VISIT = (node, table) -> null;
+
     private List<Report> reports;
 
     public AnalysisVisitor() {
         reports = new ArrayList<>();
-        setDefaultValue(() -> null);
+        setDefaultVisit(DEFAULT_VISIT);
+    }
+
+    /**
+     * @return the visit of this pass for the node alone, without its children, or null if the pass ignores the node
+     */
+    BiFunction<JmmNode, SymbolTable, Void> getNodeVisit(JmmNode node) {
+        var visit = getVisit(node);
+        return visit == DEFAULT_VISIT ? null : visit;
     }
 
     protected void addReport(Report report) {
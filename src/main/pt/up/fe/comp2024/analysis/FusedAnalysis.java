@@ -0,0 +1,97 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * Runs several analysis passes in a single walk of the AST, instead of one walk per pass.
+ * <p>
+ * Each node is given, in preorder, to the passes that visit its kind, in the order of the passes. So each pass sees
+ * the nodes in the same order as in a walk of its own, and keeps its state (e.g., the current method) as it would.
+ * A pass that throws is not given more nodes, as its own walk would have stopped there, while the others go on.
+ */
+public class FusedAnalysis {
+
+    private record NodeVisit(int pass, BiFunction<JmmNode, SymbolTable, Void> visit) {
+    }
+
+    private final List<AnalysisVisitor> passes;
+    private final Exception[] failures;
+
+    // the passes that visit each kind of node, found the first time the kind is seen
+    private final Map<String, List<NodeVisit>> visitsByKind = new HashMap<>();
+
+    public FusedAnalysis(List<AnalysisVisitor> passes) {
+        this.passes = passes;
+        this.failures = new Exception[passes.size()];
+    }
+
+    public void analyze(JmmNode root, SymbolTable table) {
+        visit(root, table, node -> false);
+    }
+
+    /**
+     * Visits the tree except the subtrees whose root is skipped, which are left to be analysed apart.
+     */
+    public void analyze(JmmNode root, SymbolTable table, Predicate<JmmNode> skip) {
+        visit(root, table, skip);
+    }
+
+    /**
+     * @return the reports of the pass, or null if it threw
+     */
+    public List<Report> getReports(int pass) {
+        return failures[pass] == null ? passes.get(pass).getReports() : null;
+    }
+
+    /**
+     * @return the exception thrown by the pass, or null if it finished
+     */
+    public Exception getFailure(int pass) {
+        return failures[pass];
+    }
+
+    private void visit(JmmNode node, SymbolTable table, Predicate<JmmNode> skip) {
+        if (skip.test(node)) return;
+
+        for (var nodeVisit : getVisits(node)) {
+            if (failures[nodeVisit.pass()] != null) continue;
+
+            try {
+                nodeVisit.visit().apply(node, table);
+            } catch (Exception e) {
+                failures[nodeVisit.pass()] = e;
+            }
+        }
+
+        for (var child : node.getChildren()) {
+            visit(child, table, skip);
+        }
+    }
+
+    private List<NodeVisit> getVisits(JmmNode node) {
+        var visits = visitsByKind.get(node.getKind());
+        if (visits != null) {
+            return visits;
+        }
+
+        visits = new ArrayList<>();
+        for (int i = 0; i < passes.size(); i++) {
+            var visit = passes.get(i).getNodeVisit(node);
+            if (visit != null) {
+                visits.add(new NodeVisit(i, visit));
+            }
+        }
+
+        visitsByKind.put(node.getKind(), visits);
+        return visits;
+    }
+}
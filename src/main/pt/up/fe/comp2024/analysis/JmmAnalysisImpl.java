@@ -8,7 +8,11 @@ import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
 import pt.up.fe.comp2024.analysis.passes.*;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.profiling.Profiler;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
 
 import java.util.ArrayList;
@@ -17,10 +21,26 @@ import java.util.List;
 public class JmmAnalysisImpl implements JmmAnalysis {
 
 
-    private final List<AnalysisPass> analysisPasses;
+    /**
+     * Passes keep their reports and the current method in instance fields, so each analysis gets fresh instances.
+     * This allows the same JmmAnalysisImpl to be reused across several inputs.
+     */
+    private List<AnalysisVisitor> createPasses() {
+        var passes = new ArrayList<>(createClassPasses());
+        passes.addAll(createMethodPasses());
+        return passes;
+    }
+
+    private List<AnalysisVisitor> createClassPasses() {
+        return List.of(new DuplicateVerifier(), new MethodVerifier());
+    }
 
-    public JmmAnalysisImpl() {
-        this.analysisPasses = List.of(new DuplicateVerifier(), new MethodVerifier(), new VarargsVerifier(), new DeclarationVerifier(), new TypeVerifier(), new ArrayVerifier());
+    /**
+     * The passes that, once the symbol table is built, check each method by itself. Outside of methods, they only
+     * check the fields.
+     */
+    private List<AnalysisVisitor> createMethodPasses() {
+        return List.of(new VarargsVerifier(), new DeclarationVerifier(), new TypeVerifier(), new ArrayVerifier());
     }
 
     @Override
@@ -28,29 +48,150 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         JmmNode rootNode = parserResult.getRootNode();
 
-        SymbolTable table = JmmSymbolTableBuilder.build(rootNode);
+        JmmSymbolTable table = Profiler.measure("symbolTable", () -> {
+            var symbolTable = JmmSymbolTableBuilder.build(rootNode);
+            Profiler.count(symbolTable.getMethods().size(), "methods");
+            return symbolTable;
+        });
 
-        List<Report> reports = new ArrayList<>();
+        // the passes and the code generation read the types of the expressions from the table
+        Profiler.measure("typing", () -> {
+            table.getExprTypes().computeAll(rootNode, table);
+            Profiler.count(table.getExprTypes().size(), "expressions");
+        });
+
+        long nodes = Profiler.isActive() ? rootNode.getDescendants().size() + 1 : 0;
+
+        var config = parserResult.getConfig();
+        List<Report> reports;
+        if (CompilerConfig.isParallelAnalysis(config)) {
+            reports = analyzeParallel(rootNode, table, nodes);
+        } else if (CompilerConfig.isFusedAnalysis(config)) {
+            reports = analyzeFused(rootNode, table, nodes);
+        } else {
+            reports = new ArrayList<>();
+            analyzeSequential(createPasses(), rootNode, table, nodes, reports);
+        }
+
+        return new JmmSemanticsResult(parserResult, table, reports);
+    }
 
+    /**
+     * Runs the passes one after the other, each in a walk of its own, until one of them reports an error.
+     *
+     * @return true if a pass reported an error
+     */
+    private boolean analyzeSequential(List<AnalysisVisitor> passes, JmmNode rootNode, SymbolTable table, long nodes,
+                                      List<Report> reports) {
         // Visit all nodes in the AST
-        for (var analysisPass : analysisPasses) {
+        for (var analysisPass : passes) {
             try {
-                var passReports = analysisPass.analyze(rootNode, table);
+                var passReports = Profiler.measure(analysisPass.getClass().getSimpleName(), () -> {
+                    Profiler.count(nodes, "nodes");
+                    return analysisPass.analyze(rootNode, table);
+                });
                 reports.addAll(passReports);
-                if (passReports.stream().anyMatch(report -> report.getType().equals(ReportType.ERROR))) {
-                    break;
+                if (hasErrors(passReports)) {
+                    return true;
                 }
             } catch (Exception e) {
-                reports.add(Report.newError(Stage.SEMANTIC,
-                        -1,
-                        -1,
-                        "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
-                        e)
-                );
+                reports.add(passFailed(analysisPass, e));
             }
 
         }
 
-        return new JmmSemanticsResult(parserResult, table, reports);
+        return false;
+    }
+
+    /**
+     * Runs every pass in a single walk of the AST, and keeps the reports the sequential analysis would give: those of
+     * the passes up to the first one that reports an error, in the order of the passes.
+     */
+    private List<Report> analyzeFused(JmmNode rootNode, SymbolTable table, long nodes) {
+        var passes = createPasses();
+        var analysis = new FusedAnalysis(passes);
+
+        Profiler.measure("fusedPasses", () -> {
+            Profiler.count(nodes, "nodes");
+            analysis.analyze(rootNode, table);
+        });
+
+        List<Report> reports = new ArrayList<>();
+        merge(passes, List.of(analysis), reports);
+        return reports;
+    }
+
+    /**
+     * Runs the passes that look at the whole class as the sequential analysis does and, if they find no errors, the
+     * passes of each method in parallel, with instances of their own. The reports are the ones the sequential
+     * analysis would give, as the fields come before the methods and the methods are merged in their order.
+     */
+    private List<Report> analyzeParallel(JmmNode rootNode, SymbolTable table, long nodes) {
+        List<Report> reports = new ArrayList<>();
+        if (analyzeSequential(createClassPasses(), rootNode, table, nodes, reports)) {
+            return reports;
+        }
+
+        var passes = createMethodPasses();
+        var outside = new FusedAnalysis(passes);
+        List<JmmNode> methods = new ArrayList<>();
+
+        var units = Profiler.measure("methodPasses", () -> {
+            // the methods are collected as they are skipped, in the order of the AST
+            outside.analyze(rootNode, table, node -> Kind.METHOD_DECL.check(node) && methods.add(node));
+            Profiler.count(methods.size(), "methods");
+
+            var analyses = new ArrayList<FusedAnalysis>();
+            analyses.add(outside);
+            analyses.addAll(methods.parallelStream()
+                    .map(method -> {
+                        var analysis = new FusedAnalysis(createMethodPasses());
+                        analysis.analyze(method, table);
+                        return analysis;
+                    })
+                    .toList());
+            return analyses;
+        });
+
+        merge(passes, units, reports);
+        return reports;
+    }
+
+    /**
+     * Adds the reports of each pass, taken from each part of the AST in order, until a pass reports an error. A pass
+     * that threw in any part gives only the report of its first exception, as it would have stopped there.
+     */
+    private static void merge(List<AnalysisVisitor> passes, List<FusedAnalysis> parts, List<Report> reports) {
+        for (int i = 0; i < passes.size(); i++) {
+            Exception failure = null;
+            List<Report> passReports = new ArrayList<>();
+            for (var part : parts) {
+                failure = part.getFailure(i);
+                if (failure != null) break;
+                passReports.addAll(part.getReports(i));
+            }
+
+            if (failure != null) {
+                reports.add(passFailed(passes.get(i), failure));
+                continue;
+            }
+
+            reports.addAll(passReports);
+            if (hasErrors(passReports)) {
+                break;
+            }
+        }
+    }
+
+    private static boolean hasErrors(List<Report> reports) {
+        return reports.stream().anyMatch(report -> report.getType().equals(ReportType.ERROR));
+    }
+
+    private static Report passFailed(AnalysisPass analysisPass, Exception e) {
+        return Report.newError(Stage.SEMANTIC,
+                -1,
+                -1,
+                "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
+                e);
     }
 }
@@ -64,7 +64,7 @@ public class DeclarationVerifier extends AnalysisVisitor {
             String method = methodExpr.get("method");
 
             // Method exists in current class, return
-            if (table.getMethods().contains(method)) {
+            if (TypeUtils.getMethodSignature(method, table) != null) {
                 return null;
             }
 
@@ -99,18 +99,8 @@ public class DeclarationVerifier extends AnalysisVisitor {
         // Check if exists a parameter or variable declaration with the same name as the variable reference
         String varRefName = varRefExpr.get("name");
 
-        // Var is a field, return
-        if (table.getFields().stream().anyMatch(param -> param.getName().equals(varRefName))) {
-            return null;
-        }
-
-        // Var is a parameter, return
-        if (table.getParameters(currentMethod).stream().anyMatch(param -> param.getName().equals(varRefName))) {
-            return null;
-        }
-
-        // Var is a declared variable, return
-        if (table.getLocalVariables(currentMethod).stream().anyMatch(varDecl -> varDecl.getName().equals(varRefName))) {
+        // Var is a declared variable, a parameter or a field, return
+        if (TypeUtils.resolveVariable(varRefName, table, currentMethod) != null) {
             return null;
         }
 
@@ -9,6 +9,8 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
 
 import java.util.List;
 import java.util.Optional;
@@ -36,7 +38,8 @@ public class MethodVerifier extends AnalysisVisitor {
         if (currentMethod.equals("main")) {
             for (var field : table.getFields()) {
                 if (field.getName().equals(varRefExpr.get("name"))) {
-                    if (!table.getLocalVariables("main").stream().anyMatch(local -> local.getName().equals(varRefExpr.get("name")))) {
+                    // the field is found, unless a local of main has the same name
+                    if (TypeUtils.resolveVariable(field.getName(), table, "main").scope() != ResolvedSymbol.Scope.LOCAL) {
                         String message = String.format("Call to non-static field '%s' in a static method", varRefExpr.get("name"));
                         addReport(Report.newError(
                                 Stage.SEMANTIC,
@@ -70,14 +70,16 @@ public class TypeVerifier extends AnalysisVisitor {
 
         if (objectType.getName().equals(table.getClassName())) {
 
+            var signature = TypeUtils.getMethodSignature(method, table);
+
             // Call to method assumed in extends
-            if (!table.getMethods().contains(method) && !table.getSuper().isEmpty()) {
+            if (signature == null && !table.getSuper().isEmpty()) {
                 return;
             }
 
             String message;
 
-            List<Symbol> expectedParams = table.getParameters(method);
+            List<Symbol> expectedParams = signature == null ? List.of() : signature.parameters();
             List<JmmNode> actualParams = methodExpr.getChildren(); actualParams.remove(0);
 
             // Method calls with no arguments
@@ -98,8 +100,7 @@ public class TypeVerifier extends AnalysisVisitor {
                 return;
             }
 
-            Type lastType = expectedParams.get(expectedParams.size()-1).getType();
-            boolean hasVararg = lastType.hasAttribute("isVararg");
+            boolean hasVararg = signature.isVararg();
 
             if (!hasVararg && actualParams.size() != expectedParams.size()) {
                 message = String.format("Method call has wrong number of arguments (expected %d, given %d)", expectedParams.size(), actualParams.size());
@@ -0,0 +1,89 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The types of the expressions of a program, kept by node instead of in an attribute of each node.
+ * <p>
+ * The types are computed by {@link #computeAll(JmmNode, SymbolTable)} before the semantic analysis, which afterwards
+ * only reads them, so the methods can be analysed in parallel. The nodes the optimizations add to the AST are typed
+ * when the code generation first asks for them. An expression that can't be typed (e.g., a call of a method that
+ * doesn't exist) is left untyped, and throws again when a pass asks for its type.
+ * <p>
+ * Literals and operators share the {@link #INT}, {@link #BOOLEAN} and {@link #INT_ARRAY} instances, which must not
+ * be changed. Attributes such as "isExternal" are only put in the types of variables and objects, which are not
+ * shared.
+ */
+public class ExprTypes {
+
+    public static final Type INT = new Type(TypeUtils.getIntTypeName(), false);
+    public static final Type BOOLEAN = new Type(TypeUtils.getBoolTypeName(), false);
+    public static final Type INT_ARRAY = new Type(TypeUtils.getIntTypeName(), true);
+
+    // kept for the expressions whose variable is not declared, which have no type
+    private static final Type NOT_DECLARED = new Type("", false);
+
+    private static final Set<String> EXPRESSIONS = Set.of(
+            Kind.BINARY_EXPR.getNodeName(), Kind.INTEGER_LITERAL.getNodeName(), Kind.PARENS_EXPR.getNodeName(),
+            Kind.LEN_EXPR.getNodeName(), Kind.ARRAY_ELEM_EXPR.getNodeName(), Kind.ARRAY_EXPR.getNodeName(),
+            Kind.METHOD_EXPR.getNodeName(), Kind.NEW_ARRAY_EXPR.getNodeName(), Kind.NEW_OBJECT_EXPR.getNodeName(),
+            Kind.NEG_EXPR.getNodeName(), Kind.BOOLEAN_LITERAL.getNodeName(), Kind.THIS_EXPR.getNodeName(),
+            Kind.VAR_REF_EXPR.getNodeName());
+
+    private final Map<JmmNode, Type> types = new IdentityHashMap<>();
+
+    /**
+     * Types every expression of the program, in a single walk of the AST.
+     */
+    public void computeAll(JmmNode root, SymbolTable table) {
+        compute(root, table, null);
+    }
+
+    /**
+     * @return the type of the expression, computed the first time it is asked for, or null if its variable is not
+     * declared
+     */
+    public Type get(JmmNode expr, SymbolTable table, String method) {
+        var type = types.get(expr);
+        if (type == null) {
+            type = TypeUtils.computeExprType(expr, table, method);
+            types.put(expr, type == null ? NOT_DECLARED : type);
+            return type;
+        }
+
+        return type == NOT_DECLARED ? null : type;
+    }
+
+    /**
+     * @return the number of expressions typed so far
+     */
+    public int size() {
+        return types.size();
+    }
+
+    private void compute(JmmNode node, SymbolTable table, String method) {
+        var kind = node.getKind();
+        if (EXPRESSIONS.contains(kind)) {
+            try {
+                get(node, table, method);
+            } catch (RuntimeException e) {
+                // left for the pass that checks the expression
+            }
+        } else if (kind.equals(Kind.METHOD_DECL.getNodeName())) {
+            method = node.get("name");
+        }
+
+        // the children are copied by getChildren, even when there are none
+        if (node.getNumChildren() == 0) return;
+
+        for (var child : node.getChildren()) {
+            compute(child, table, method);
+        }
+    }
+}
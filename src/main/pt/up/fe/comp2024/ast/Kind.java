@@ -4,7 +4,9 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.specs.util.SpecsStrings;
 
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public enum Kind {
     PROGRAM,
@@ -47,6 +49,9 @@ public enum Kind {
     private static final Set<Kind> EXPRESSIONS = Set.of(BINARY_EXPR, INTEGER_LITERAL, VAR_REF_EXPR);
     public static final Set<Kind> TYPES = Set.of(ARRAY_TYPE, VARARG_TYPE, INT_TYPE, BOOL_TYPE, VOID_TYPE, OBJECT_ARRAY_TYPE, OBJECT_TYPE);
 
+    private static final Map<String, Kind> BY_NODE_NAME = Arrays.stream(values())
+            .collect(Collectors.toMap(Kind::getNodeName, k -> k));
+
     private final String name;
 
     private Kind(String name) {
@@ -59,12 +64,11 @@ public enum Kind {
 
     public static Kind fromString(String kind) {
 
-        for (Kind k : Kind.values()) {
-            if (k.getNodeName().equals(kind)) {
-                return k;
-            }
+        Kind k = BY_NODE_NAME.get(kind);
+        if (k == null) {
+            throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
         }
-        throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+        return k;
     }
 
     public String getNodeName() {
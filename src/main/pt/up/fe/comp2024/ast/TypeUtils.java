@@ -3,6 +3,9 @@ package pt.up.fe.comp2024.ast;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.MethodSignature;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
 
 public class TypeUtils {
 
@@ -18,22 +21,26 @@ public class TypeUtils {
         return Boolean.parseBoolean(type.get("isArray"));
     }
 
+    /**
+     * @return the type of the expression, kept by the symbol table once computed, or null if its variable is not
+     * declared
+     */
     public static Type getExprType(JmmNode expr, SymbolTable table, String method) {
-
-        if (expr.hasAttribute("notDeclared")) {
-            return null;
+        if (table instanceof JmmSymbolTable symbolTable) {
+            return symbolTable.getExprTypes().get(expr, table, method);
         }
 
-        if (expr.hasAttribute("type")) {
-            return expr.getObject("type", Type.class);
-        }
+        return computeExprType(expr, table, method);
+    }
+
+    static Type computeExprType(JmmNode expr, SymbolTable table, String method) {
 
         var kind = Kind.fromString(expr.getKind());
 
-        Type type = switch (kind) {
-            case INTEGER_LITERAL, ARRAY_ELEM_EXPR, LEN_EXPR -> new Type(INT_TYPE_NAME, false);
-            case BOOLEAN_LITERAL, NEG_EXPR -> new Type(BOOL_TYPE_NAME, false);
-            case NEW_ARRAY_EXPR, ARRAY_EXPR -> new Type(INT_TYPE_NAME, true);
+        return switch (kind) {
+            case INTEGER_LITERAL, ARRAY_ELEM_EXPR, LEN_EXPR -> ExprTypes.INT;
+            case BOOLEAN_LITERAL, NEG_EXPR -> ExprTypes.BOOLEAN;
+            case NEW_ARRAY_EXPR, ARRAY_EXPR -> ExprTypes.INT_ARRAY;
             case PARENS_EXPR -> getExprType(expr.getChild(0), table, method);
             case THIS_EXPR -> new Type(table.getClassName(), false);
             case BINARY_EXPR -> getBinExprType(expr);
@@ -42,14 +49,6 @@ public class TypeUtils {
             case METHOD_EXPR -> getMethodExprType(expr, table, method);
             default -> throw new UnsupportedOperationException("Can't compute type for expression kind '" + kind + "'");
         };
-
-        if (type != null) {
-            expr.putObject("type", type);
-        } else {
-            expr.putObject("notDeclared", true);
-        }
-
-        return type;
     }
 
     public static Type getMethodExprType(JmmNode expr, SymbolTable table, String currentMethod) {
@@ -79,12 +78,16 @@ public class TypeUtils {
             Type varType = getVarExprType(node, table, currentMethod);
             if (varType == null) {
                 return null;
-            } else if (varType.hasAttribute("isExternal")) {
-                return varType;
-            } else if (table.getImports().contains(varType.getName())) {
-                varType.putObject("isExternal", true);
-                varType.putObject("isInstance", true);
-                return varType;
+            }
+            // the type of a field is shared by the methods, which may be analysed in parallel
+            synchronized (varType) {
+                if (varType.hasAttribute("isExternal")) {
+                    return varType;
+                } else if (table.getImports().contains(varType.getName())) {
+                    varType.putObject("isExternal", true);
+                    varType.putObject("isInstance", true);
+                    return varType;
+                }
             }
             String className = varType.getName();
             if (className.equals(table.getClassName()))
@@ -117,8 +120,8 @@ public class TypeUtils {
         String operator = binaryExpr.get("op");
 
         return switch (operator) {
-            case "+", "*", "-", "/" -> new Type(INT_TYPE_NAME, false);
-            case "&&", "<" -> new Type(BOOL_TYPE_NAME, false);
+            case "+", "*", "-", "/" -> ExprTypes.INT;
+            case "&&", "<" -> ExprTypes.BOOLEAN;
             default ->
                     throw new RuntimeException("Unknown operator '" + operator + "' of expression '" + binaryExpr + "'");
         };
@@ -128,25 +131,10 @@ public class TypeUtils {
 
         String variable = varRefExpr.get("name");
 
-        // Var is a local
-        for (var local : table.getLocalVariables(method)) {
-            if (local.getName().equals(variable)) {
-                return local.getType();
-            }
-        }
-
-        // Var is a parameter
-        for (var param : table.getParameters(method)) {
-            if (param.getName().equals(variable)) {
-                return param.getType();
-            }
-        }
-
-        // Var is a field
-        for (var field : table.getFields()) {
-            if (field.getName().equals(variable)) {
-                return field.getType();
-            }
+        // Var is a local, a parameter or a field
+        Type varType = getVariableType(variable, table, method);
+        if (varType != null) {
+            return varType;
         }
 
         // Var is imported
@@ -171,25 +159,51 @@ public class TypeUtils {
     }
 
     public static Type getVariableType(String variable, SymbolTable table, String method) {
+        var resolved = resolveVariable(variable, table, method);
+        return resolved == null ? null : resolved.getType();
+    }
+
+    /**
+     * @return the signature of the method of the class with the name, or null if the class has no such method
+     */
+    public static MethodSignature getMethodSignature(String method, SymbolTable table) {
+        if (table instanceof JmmSymbolTable symbolTable) {
+            return symbolTable.getSignature(method);
+        }
+
+        if (!table.getMethods().contains(method)) {
+            return null;
+        }
+        return MethodSignature.of(method, table.getReturnType(method), table.getParameters(method));
+    }
+
+    /**
+     * @return the local, parameter or field the variable refers to in the method, in this order, or null if it is
+     * not declared
+     */
+    public static ResolvedSymbol resolveVariable(String variable, SymbolTable table, String method) {
+        if (table instanceof JmmSymbolTable symbolTable) {
+            return symbolTable.resolve(method, variable);
+        }
 
-        // Var is a local
-        for (var local : table.getLocalVariables(method)) {
-            if (local.getName().equals(variable)) {
-                return local.getType();
+        var locals = table.getLocalVariables(method);
+        for (int i = 0; i < locals.size(); i++) {
+            if (locals.get(i).getName().equals(variable)) {
+                return new ResolvedSymbol(locals.get(i), ResolvedSymbol.Scope.LOCAL, i);
             }
         }
 
-        // Var is a parameter
-        for (var param : table.getParameters(method)) {
-            if (param.getName().equals(variable)) {
-                return param.getType();
+        var params = table.getParameters(method);
+        for (int i = 0; i < params.size(); i++) {
+            if (params.get(i).getName().equals(variable)) {
+                return new ResolvedSymbol(params.get(i), ResolvedSymbol.Scope.PARAM, i);
             }
         }
 
-        // Var is a field
-        for (var field : table.getFields()) {
-            if (field.getName().equals(variable)) {
-                return field.getType();
+        var fields = table.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).getName().equals(variable)) {
+                return new ResolvedSymbol(fields.get(i), ResolvedSymbol.Scope.FIELD, i);
             }
         }
         return null;
@@ -0,0 +1,26 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.jasmin.JasminBackend;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.profiling.Profiler;
+
+/**
+ * Backend that writes the class file directly from the instructions of each method, instead of leaving it to the
+ * Jasmin assembler. The Jasmin code is still generated, from the same instructions, for the stages that read it.
+ */
+public class ClassFileBackendImpl implements JasminBackend {
+
+    @Override
+    public ClassFileResult toJasmin(OllirResult ollirResult) {
+
+        var jasminGenerator = new JasminGenerator(ollirResult);
+        var classFile = Profiler.measure("generation", () -> {
+            var bytes = jasminGenerator.buildClassFile();
+            Profiler.count(bytes.length, "bytes");
+            return bytes;
+        });
+
+        return new ClassFileResult(ollirResult.getOllirClass().getClassName(), jasminGenerator.build(), classFile,
+                jasminGenerator.getReports(), ollirResult.getConfig());
+    }
+}
@@ -0,0 +1,42 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A JasminResult that already has its class file, so compiling (and running) it writes the class file instead of
+ * assembling the Jasmin code again.
+ */
+public class ClassFileResult extends JasminResult {
+
+    private final byte[] classFile;
+
+    public ClassFileResult(String className, String jasminCode, byte[] classFile, List<Report> reports,
+                           Map<String, String> config) {
+        super(className, jasminCode, reports, config);
+        this.classFile = classFile;
+    }
+
+    public byte[] getClassFile() {
+        return classFile;
+    }
+
+    @Override
+    public File compile(File outputDir) {
+        var file = new File(outputDir, getClassName() + ".class");
+        try {
+            Files.createDirectories(outputDir.toPath());
+            Files.write(file.toPath(), classFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write class file " + file, e);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,347 @@
+package pt.up.fe.comp2024.backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a class file from the instructions of its methods, doing the work of the Jasmin assembler without going
+ * through Jasmin text.
+ * <p>
+ * The class file is the one Jasmin would assemble from the same code: version 45.3, so no stack map frames are
+ * needed, and the shortest form of each instruction. Constants, classes, fields and methods are added to the constant
+ * pool once, on their first use.
+ */
+public class ClassFileWriter {
+
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_PRIVATE = 0x0002;
+    public static final int ACC_PROTECTED = 0x0004;
+    public static final int ACC_STATIC = 0x0008;
+
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MINOR_VERSION = 3;
+    private static final int MAJOR_VERSION = 45;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    // opcodes of the short forms of instructions, not in Opcode as the generators never choose them
+    private static final int ILOAD_0 = 0x1a;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ISTORE_0 = 0x3b;
+    private static final int ASTORE_0 = 0x4b;
+    private static final int LDC_W = 0x13;
+    private static final int WIDE = 0xc4;
+    private static final int T_INT = 10;
+
+    private final ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream constantPool = new DataOutputStream(constantPoolBytes);
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int constantCount = 1;
+
+    private final ByteArrayOutputStream fieldBytes = new ByteArrayOutputStream();
+    private final DataOutputStream fields = new DataOutputStream(fieldBytes);
+    private int fieldCount = 0;
+
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodBytes);
+    private int methodCount = 0;
+
+    private int thisClass;
+    private int superClass;
+
+    public void setClass(String name, String superName) {
+        thisClass = classConstant(name);
+        superClass = classConstant(superName);
+    }
+
+    public void addField(int access, String name, String descriptor) {
+        try {
+            fields.writeShort(access);
+            fields.writeShort(utf8(name));
+            fields.writeShort(utf8(descriptor));
+            fields.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fieldCount++;
+    }
+
+    public void addMethod(int access, String name, String descriptor, int maxStack, int maxLocals, JasminCode code) {
+        byte[] bytecode = assemble(code.getInstructions());
+
+        try {
+            methods.writeShort(access);
+            methods.writeShort(utf8(name));
+            methods.writeShort(utf8(descriptor));
+            methods.writeShort(1);
+
+            // the Code attribute, without exception handlers or attributes of its own
+            methods.writeShort(utf8("Code"));
+            methods.writeInt(2 + 2 + 4 + bytecode.length + 2 + 2);
+            methods.writeShort(maxStack);
+            methods.writeShort(maxLocals);
+            methods.writeInt(bytecode.length);
+            methods.write(bytecode);
+            methods.writeShort(0);
+            methods.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methodCount++;
+    }
+
+    public byte[] toByteArray() {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(MINOR_VERSION);
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(constantCount);
+            constantPoolBytes.writeTo(out);
+
+            out.writeShort(ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+
+            out.writeShort(fieldCount);
+            fieldBytes.writeTo(out);
+            out.writeShort(methodCount);
+            methodBytes.writeTo(out);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes the instructions in two passes: the first finds the offset of every label, the second writes the
+     * instructions with the offsets of their branches.
+     */
+    private byte[] assemble(List<JasminInstruction> instructions) {
+        Map<JasminLabel, Integer> offsets = new IdentityHashMap<>();
+        int[] constantIndexes = new int[instructions.size()];
+
+        int offset = 0;
+        for (int i = 0; i < instructions.size(); i++) {
+            var instruction = instructions.get(i);
+            if (instruction.getOpcode() == Opcode.LABEL) {
+                offsets.put(instruction.getLabel(), offset);
+            }
+            constantIndexes[i] = resolve(instruction);
+            offset += size(instruction, constantIndexes[i]);
+        }
+
+        var bytes = new ByteArrayOutputStream(offset);
+        var code = new DataOutputStream(bytes);
+        try {
+            offset = 0;
+            for (int i = 0; i < instructions.size(); i++) {
+                var instruction = instructions.get(i);
+                write(code, instruction, constantIndexes[i], offset, offsets);
+                offset += size(instruction, constantIndexes[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the index in the constant pool of what the instruction uses, or 0 if it uses nothing from it
+     */
+    private int resolve(JasminInstruction instruction) {
+        String reference = instruction.getReference();
+
+        return switch (instruction.getOpcode()) {
+            case LDC -> constant(CONSTANT_INTEGER, String.valueOf(instruction.getValue()),
+                    out -> out.writeInt(instruction.getValue()));
+            case NEW -> classConstant(reference);
+            case INVOKESTATIC, INVOKEVIRTUAL, INVOKESPECIAL -> {
+                // owner/name(descriptor)
+                int parameters = reference.indexOf('(');
+                int separator = reference.lastIndexOf('/', parameters);
+                yield memberConstant(CONSTANT_METHODREF, reference.substring(0, separator),
+                        reference.substring(separator + 1, parameters), reference.substring(parameters));
+            }
+            case GETFIELD, PUTFIELD -> {
+                // owner/name descriptor
+                int space = reference.lastIndexOf(' ');
+                int separator = reference.lastIndexOf('/', space);
+                yield memberConstant(CONSTANT_FIELDREF, reference.substring(0, separator),
+                        reference.substring(separator + 1, space), reference.substring(space + 1));
+            }
+            default -> 0;
+        };
+    }
+
+    private static int size(JasminInstruction instruction, int constantIndex) {
+        int value = instruction.getValue();
+
+        return switch (instruction.getOpcode()) {
+            case LABEL -> 0;
+            case ILOAD, ALOAD, ISTORE, ASTORE -> value <= 3 ? 1 : value <= 0xff ? 2 : 4;
+            case IINC -> isWideIinc(instruction) ? 6 : 3;
+            case BIPUSH, NEWARRAY -> 2;
+            case LDC -> constantIndex <= 0xff ? 2 : 3;
+            case SIPUSH, NEW, INVOKESTATIC, INVOKEVIRTUAL, INVOKESPECIAL, GETFIELD, PUTFIELD -> 3;
+            default -> instruction.getOpcode().isBranch() ? 3 : 1;
+        };
+    }
+
+    private static boolean isWideIinc(JasminInstruction instruction) {
+        int increment = instruction.getIncrement();
+        return instruction.getValue() > 0xff || increment < Byte.MIN_VALUE || increment > Byte.MAX_VALUE;
+    }
+
+    private static void write(DataOutputStream code, JasminInstruction instruction, int constantIndex, int offset,
+                              Map<JasminLabel, Integer> offsets) throws IOException {
+        var opcode = instruction.getOpcode();
+        int value = instruction.getValue();
+
+        switch (opcode) {
+            case LABEL -> {
+            }
+            case ILOAD, ALOAD, ISTORE, ASTORE -> {
+                if (value <= 3) {
+                    code.writeByte(shortForm(opcode) + value);
+                } else if (value <= 0xff) {
+                    code.writeByte(opcode.getCode());
+                    code.writeByte(value);
+                } else {
+                    code.writeByte(WIDE);
+                    code.writeByte(opcode.getCode());
+                    code.writeShort(value);
+                }
+            }
+            case IINC -> {
+                if (isWideIinc(instruction)) {
+                    code.writeByte(WIDE);
+                    code.writeByte(opcode.getCode());
+                    code.writeShort(value);
+                    code.writeShort(instruction.getIncrement());
+                } else {
+                    code.writeByte(opcode.getCode());
+                    code.writeByte(value);
+                    code.writeByte(instruction.getIncrement());
+                }
+            }
+            case ICONST -> code.writeByte(opcode.getCode() + value);
+            case BIPUSH -> {
+                code.writeByte(opcode.getCode());
+                code.writeByte(value);
+            }
+            case SIPUSH -> {
+                code.writeByte(opcode.getCode());
+                code.writeShort(value);
+            }
+            case LDC -> {
+                if (constantIndex <= 0xff) {
+                    code.writeByte(opcode.getCode());
+                    code.writeByte(constantIndex);
+                } else {
+                    code.writeByte(LDC_W);
+                    code.writeShort(constantIndex);
+                }
+            }
+            case NEWARRAY -> {
+                code.writeByte(opcode.getCode());
+                code.writeByte(T_INT);
+            }
+            case NEW, INVOKESTATIC, INVOKEVIRTUAL, INVOKESPECIAL, GETFIELD, PUTFIELD -> {
+                code.writeByte(opcode.getCode());
+                code.writeShort(constantIndex);
+            }
+            default -> {
+                code.writeByte(opcode.getCode());
+                if (opcode.isBranch()) {
+                    Integer target = offsets.get(instruction.getLabel());
+                    if (target == null) {
+                        throw new IllegalStateException("Label of '" + instruction + "' is not placed");
+                    }
+                    int jump = target - offset;
+                    if (jump < Short.MIN_VALUE || jump > Short.MAX_VALUE) {
+                        throw new IllegalStateException("Branch '" + instruction + "' jumps too far: " + jump);
+                    }
+                    code.writeShort(jump);
+                }
+            }
+        }
+    }
+
+    private static int shortForm(Opcode opcode) {
+        return switch (opcode) {
+            case ILOAD -> ILOAD_0;
+            case ALOAD -> ALOAD_0;
+            case ISTORE -> ISTORE_0;
+            case ASTORE -> ASTORE_0;
+            default -> throw new IllegalArgumentException("No short form: " + opcode);
+        };
+    }
+
+    private interface ConstantWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * @return the index of the constant, which is only written the first time it is asked for
+     */
+    private int constant(int tag, String key, ConstantWriter writer) {
+        Integer index = constants.get(tag + ":" + key);
+        if (index != null) {
+            return index;
+        }
+
+        try {
+            constantPool.writeByte(tag);
+            writer.write(constantPool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        index = constantCount++;
+        constants.put(tag + ":" + key, index);
+        return index;
+    }
+
+    private int utf8(String text) {
+        return constant(CONSTANT_UTF8, text, out -> out.writeUTF(text));
+    }
+
+    private int classConstant(String name) {
+        int nameIndex = utf8(name);
+        return constant(CONSTANT_CLASS, name, out -> out.writeShort(nameIndex));
+    }
+
+    private int memberConstant(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classConstant(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant(CONSTANT_NAME_AND_TYPE, name + " " + descriptor, out -> {
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return constant(tag, owner + "." + name + " " + descriptor, out -> {
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+}
@@ -0,0 +1,336 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Runs the class of a JasminResult inside this JVM, instead of writing it to a file and starting a new JVM as
+ * {@link JasminResult#run()} does.
+ * <p>
+ * The class is assembled in memory (or taken as it is from a {@link ClassFileResult}) and loaded by a class loader of
+ * its own, together with the libraries it uses, so the static state of a run (e.g., the input buffered by {@code io})
+ * is not seen by the next one. While {@code main} runs, the standard streams of its thread are replaced by buffers,
+ * so several programs can run at the same time in different threads. Unlike {@link JasminResult#run()}, what a
+ * program prints is only returned, not also printed to the console.
+ * <p>
+ * A program that does not finish in time is left running in a daemon thread, as a thread cannot be stopped safely.
+ * Programs that may not terminate are better run by {@link JasminResult#run()}.
+ */
+public class InMemoryRunner {
+
+    private static final long DEFAULT_TIMEOUT_MS = 5000;
+
+    private static final ThreadLocal<OutputStream> threadOut = new ThreadLocal<>();
+    private static final ThreadLocal<OutputStream> threadErr = new ThreadLocal<>();
+    private static final ThreadLocal<InputStream> threadIn = new ThreadLocal<>();
+
+    // the streams installed by the runner, which are installed again if something else replaces them
+    private static PrintStream installedOut;
+    private static PrintStream installedErr;
+    private static InputStream installedIn;
+
+    private final URL[] classpath;
+    private final long timeoutMillis;
+
+    /**
+     * Runs programs with the libraries the tests use, for at most 5 seconds each.
+     */
+    public InMemoryRunner() {
+        this(List.of(new File(TestUtils.getLibsClasspath())), DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * @param classpath     folders and jars with the classes the programs use
+     * @param timeoutMillis the time after which a program stops being waited for
+     */
+    public InMemoryRunner(List<File> classpath, long timeoutMillis) {
+        this.classpath = new URL[classpath.size()];
+        for (int i = 0; i < classpath.size(); i++) {
+            try {
+                this.classpath[i] = classpath.get(i).toURI().toURL();
+            } catch (MalformedURLException e) {
+                throw new RuntimeException("Invalid classpath entry: " + classpath.get(i), e);
+            }
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return what the program printed, as {@link JasminResult#run()}
+     */
+    public String run(JasminResult result) {
+        return runWithFullOutput(result, List.of(), null).getOutput();
+    }
+
+    /**
+     * @param input the lines read by the program, one at a time as if they were typed
+     * @return what the program printed, as {@link JasminResult#run(String)}
+     */
+    public String run(JasminResult result, String input) {
+        return runWithFullOutput(result, List.of(), input).getOutput();
+    }
+
+    /**
+     * @return the exit status (1 if the program threw, -1 if it timed out), and what the program printed to the
+     * standard output and error
+     */
+    public ProcessOutputAsString runWithFullOutput(JasminResult result, List<String> args, String input) {
+        installStreams();
+
+        var stdout = new ByteArrayOutputStream();
+        var stderr = new ByteArrayOutputStream();
+        var stdin = new LineInputStream(input == null ? "" : input);
+        var loader = new ProgramLoader(classpath, toClassFile(result));
+        int[] status = {0};
+
+        var thread = new Thread(() -> {
+            threadOut.set(stdout);
+            threadErr.set(stderr);
+            threadIn.set(stdin);
+            try {
+                status[0] = runMain(loader, args);
+            } finally {
+                threadOut.remove();
+                threadErr.remove();
+                threadIn.remove();
+            }
+        }, "main");
+        thread.setDaemon(true);
+        thread.setContextClassLoader(loader);
+        thread.start();
+
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive()) {
+            thread.interrupt();
+            return new ProcessOutputAsString(-1, toLines(stdout),
+                    "Program timed out after " + timeoutMillis + " ms" + System.lineSeparator());
+        }
+
+        return new ProcessOutputAsString(status[0], toLines(stdout), toLines(stderr));
+    }
+
+    /**
+     * Ends every line as the forking runner does, which reads what the program prints line by line.
+     */
+    private static String toLines(ByteArrayOutputStream output) {
+        String text = output.toString(StandardCharsets.UTF_8);
+        if (text.isEmpty()) return text;
+
+        var lines = new StringBuilder(text.length() + 1);
+        text.lines().forEach(line -> lines.append(line).append(System.lineSeparator()));
+        return lines.toString();
+    }
+
+    /**
+     * @return the class file of the result, assembling its Jasmin code if the backend did not write it
+     */
+    public static byte[] toClassFile(JasminResult result) {
+        if (result instanceof ClassFileResult classFileResult) {
+            return classFileResult.getClassFile();
+        }
+        return JasminAssembler.assemble(result.getJasminCode());
+    }
+
+    /**
+     * Runs main in the current thread, printing what went wrong as the java launcher would.
+     *
+     * @return the exit status
+     */
+    private static int runMain(ProgramLoader loader, List<String> args) {
+        String className;
+        try {
+            className = loader.defineProgram();
+        } catch (LinkageError e) {
+            System.err.println("Error: LinkageError occurred while loading main class");
+            System.err.println("\t" + e);
+            return 1;
+        }
+
+        Method main;
+        try {
+            main = Class.forName(className, true, loader).getMethod("main", String[].class);
+        } catch (NoSuchMethodException e) {
+            System.err.println("Error: Main method not found in class " + className);
+            return 1;
+        } catch (ClassNotFoundException | LinkageError e) {
+            System.err.println("Error: Unable to initialize main class " + className);
+            System.err.println("Caused by: " + e);
+            return 1;
+        }
+
+        if (!Modifier.isStatic(main.getModifiers())) {
+            System.err.println("Error: Main method is not static in class " + className);
+            return 1;
+        }
+
+        try {
+            // the class is not public, as in the classes Jasmin assembles
+            main.setAccessible(true);
+            main.invoke(null, (Object) args.toArray(new String[0]));
+            return 0;
+        } catch (InvocationTargetException e) {
+            System.err.print("Exception in thread \"main\" ");
+            e.getCause().printStackTrace();
+            return 1;
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Could not call main of " + className, e);
+        }
+    }
+
+    /**
+     * Replaces the standard streams by streams that go to the buffers of the current thread if it is running a
+     * program, and to the streams they replaced otherwise. Test frameworks may replace the standard streams too, so
+     * this is checked before each run.
+     */
+    private static synchronized void installStreams() {
+        if (System.out != installedOut) {
+            installedOut = new PrintStream(new ThreadOutputStream(threadOut, System.out), true);
+            System.setOut(installedOut);
+        }
+        if (System.err != installedErr) {
+            installedErr = new PrintStream(new ThreadOutputStream(threadErr, System.err), true);
+            System.setErr(installedErr);
+        }
+        if (System.in != installedIn) {
+            installedIn = new ThreadInputStream(threadIn, System.in);
+            System.setIn(installedIn);
+        }
+    }
+
+    private static class ProgramLoader extends URLClassLoader {
+
+        private final byte[] classFile;
+
+        ProgramLoader(URL[] classpath, byte[] classFile) {
+            // the libraries are loaded again by each program, not by the loader of the compiler
+            super(classpath, ClassLoader.getPlatformClassLoader());
+            this.classFile = classFile;
+        }
+
+        /**
+         * Defines the class of the program before any other, as it comes first in the classpath when run by java.
+         *
+         * @return the name of the class, which is the one in the class file (as the file Jasmin writes is named after
+         * it), not the one of the result
+         */
+        String defineProgram() {
+            return defineClass(null, classFile, 0, classFile.length).getName();
+        }
+    }
+
+    private static class ThreadOutputStream extends OutputStream {
+
+        private final ThreadLocal<OutputStream> target;
+        private final OutputStream original;
+
+        ThreadOutputStream(ThreadLocal<OutputStream> target, OutputStream original) {
+            this.target = target;
+            this.original = original;
+        }
+
+        private OutputStream get() {
+            var stream = target.get();
+            return stream != null ? stream : original;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            get().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            get().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            get().flush();
+        }
+    }
+
+    private static class ThreadInputStream extends InputStream {
+
+        private final ThreadLocal<InputStream> source;
+        private final InputStream original;
+
+        ThreadInputStream(ThreadLocal<InputStream> source, InputStream original) {
+            this.source = source;
+            this.original = original;
+        }
+
+        private InputStream get() {
+            var stream = source.get();
+            return stream != null ? stream : original;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return get().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return get().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return get().available();
+        }
+    }
+
+    /**
+     * Gives at most one line to each read, as if the lines were typed one at a time, so a reader that is created for
+     * each line (as {@code io.read()} does) does not take the following lines with it.
+     */
+    private static class LineInputStream extends InputStream {
+
+        private final byte[] input;
+        private int position = 0;
+
+        LineInputStream(String input) {
+            this.input = input.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            return position < input.length ? input[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (position >= input.length) return -1;
+
+            int count = 0;
+            while (count < len && position < input.length) {
+                byte next = input[position++];
+                b[off + count++] = next;
+                if (next == '\n') break;
+            }
+            return count;
+        }
+    }
+}
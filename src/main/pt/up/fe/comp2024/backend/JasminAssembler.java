@@ -0,0 +1,54 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.jasmin.JasminUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+
+/**
+ * Assembles Jasmin code into class files.
+ * <p>
+ * The Jasmin assembler keeps part of its scanner state in static fields, so every assembly in this JVM goes through
+ * here and is serialized.
+ */
+public class JasminAssembler {
+
+    private static final Object LOCK = new Object();
+
+    private JasminAssembler() {
+    }
+
+    /**
+     * Assembles Jasmin code into a class file, without going through files.
+     */
+    public static byte[] assemble(String jasminCode) {
+        var bytes = new ByteArrayOutputStream();
+        synchronized (LOCK) {
+            var classFile = new jasmin.ClassFile();
+            try {
+                classFile.readJasmin(new StringReader(jasminCode), "jasmin", true);
+                if (classFile.errorCount() > 0) {
+                    throw new RuntimeException("Found " + classFile.errorCount() + " errors while compiling Jasmin code.");
+                }
+                classFile.write(bytes);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Could not assemble Jasmin code", e);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Assembles a .j file into a class file inside the given folder.
+     *
+     * @return the class file
+     */
+    public static File assemble(File jasminFile, File outputDir) {
+        synchronized (LOCK) {
+            return JasminUtils.assemble(jasminFile, outputDir);
+        }
+    }
+}
@@ -3,14 +3,34 @@ package pt.up.fe.comp2024.backend;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.profiling.Profiler;
+import pt.up.fe.comp2024.utils.FragmentCache;
 
 public class JasminBackendImpl implements JasminBackend {
 
+    private final FragmentCache methodCache;
+
+    public JasminBackendImpl() {
+        this(null);
+    }
+
+    /**
+     * @param methodCache cache of the Jasmin code of each method, shared by every call to
+     *                    {@link #toJasmin(OllirResult)}, or null to always generate every method
+     */
+    public JasminBackendImpl(FragmentCache methodCache) {
+        this.methodCache = methodCache;
+    }
+
     @Override
     public JasminResult toJasmin(OllirResult ollirResult) {
 
-        var jasminGenerator = new JasminGenerator(ollirResult);
-        var jasminCode = jasminGenerator.build();
+        var jasminGenerator = new JasminGenerator(ollirResult, methodCache);
+        var jasminCode = Profiler.measure("generation", () -> {
+            var code = jasminGenerator.build();
+            Profiler.count(code.lines().count(), "lines");
+            return code;
+        });
 
         return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
     }
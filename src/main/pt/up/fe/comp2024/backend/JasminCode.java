@@ -0,0 +1,70 @@
+package pt.up.fe.comp2024.backend;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The instructions of a method, in order, which the generators append to and which are only turned into Jasmin text
+ * by {@link #appendTo(StringBuilder)} once the method is complete.
+ */
+public class JasminCode {
+
+    private final List<JasminInstruction> instructions = new ArrayList<>();
+    private final Map<String, JasminLabel> labels = new HashMap<>();
+
+    /**
+     * @return the label with the given name, the same instance every time
+     */
+    public JasminLabel getLabel(String name) {
+        return labels.computeIfAbsent(name, JasminLabel::new);
+    }
+
+    public void add(JasminInstruction instruction) {
+        instructions.add(instruction);
+    }
+
+    public void add(Opcode opcode) {
+        add(JasminInstruction.of(opcode));
+    }
+
+    public void add(Opcode opcode, int value) {
+        add(JasminInstruction.of(opcode, value));
+    }
+
+    public void add(Opcode opcode, String reference) {
+        add(JasminInstruction.of(opcode, reference));
+    }
+
+    public void add(Opcode opcode, JasminLabel label) {
+        add(JasminInstruction.of(opcode, label));
+    }
+
+    /**
+     * Places the label before the next instruction added.
+     */
+    public void place(JasminLabel label) {
+        add(Opcode.LABEL, label);
+    }
+
+    /**
+     * @return the instructions, which may be changed in place
+     */
+    public List<JasminInstruction> getInstructions() {
+        return instructions;
+    }
+
+    public void appendTo(StringBuilder code) {
+        for (var instruction : instructions) {
+            instruction.appendTo(code);
+        }
+    }
+
+    @Override
+    public String toString() {
+        var code = new StringBuilder();
+        appendTo(code);
+        return code.toString();
+    }
+}
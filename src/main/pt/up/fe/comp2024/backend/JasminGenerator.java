@@ -4,19 +4,27 @@ import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.profiling.Profiler;
+import pt.up.fe.comp2024.utils.FragmentCache;
+import pt.up.fe.comp2024.utils.HashUtils;
 import pt.up.fe.specs.util.classmap.FunctionClassMap;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import static pt.up.fe.comp2024.backend.JasminUtils.*;
 
 /**
- * Generates Jasmin code from an OllirResult.
+ * Generates Jasmin code from an OllirResult, and optionally the class file assembled from it.
  * <p>
  * One JasminGenerator instance per OllirResult.
  */
 public class JasminGenerator {
 
     private final OllirResult ollirResult;
+    private final JasminUtils utils;
 
     List<Report> reports;
 
@@ -24,9 +32,27 @@ public class JasminGenerator {
 
     private final FunctionClassMap<TreeNode, String> generators;
     private final JasminInstructionGenerator instructionGenerator;
+
+    private final FragmentCache methodCache;
+
+    // only with -o, null otherwise
+    private final JasminPeephole peephole;
+
+    // only when the class file is built, null otherwise
+    private ClassFileWriter classFile;
+
     public JasminGenerator(OllirResult ollirResult) {
+        this(ollirResult, null);
+    }
+
+    /**
+     * @param methodCache cache of the Jasmin code of each method, or null to generate every method
+     */
+    public JasminGenerator(OllirResult ollirResult, FragmentCache methodCache) {
         this.ollirResult = ollirResult;
-        JasminUtils.setOllirResult(ollirResult);
+        this.utils = new JasminUtils(ollirResult);
+        this.methodCache = methodCache;
+        this.peephole = CompilerConfig.getOptimize(ollirResult.getConfig()) ? new JasminPeephole() : null;
 
         reports = new ArrayList<>();
         code = null;
@@ -35,7 +61,7 @@ public class JasminGenerator {
         generators.put(ClassUnit.class, this::generateClassUnit);
         generators.put(Method.class, this::generateMethod);
 
-        this.instructionGenerator = new JasminInstructionGenerator(ollirResult);
+        this.instructionGenerator = new JasminInstructionGenerator(ollirResult, utils);
 
     }
 
@@ -46,12 +72,33 @@ public class JasminGenerator {
     public String build() {
 
         if (code == null) {
-            code = generators.apply(ollirResult.getOllirClass());
+            generate();
         }
 
         return code;
     }
 
+    /**
+     * Builds the class file from the same instructions as the Jasmin code, which is generated on the way and returned
+     * by {@link #build()} afterwards. The code of cached methods cannot be used, so every method is generated.
+     *
+     * @return the bytes of the class file
+     */
+    public byte[] buildClassFile() {
+
+        if (classFile == null) {
+            classFile = new ClassFileWriter();
+            generate();
+        }
+
+        return classFile.toByteArray();
+    }
+
+    private void generate() {
+        code = generators.apply(ollirResult.getOllirClass());
+        if (peephole != null && peephole.getTotalHits() > 0) reportPeephole();
+    }
+
     private String generateClassUnit(ClassUnit classUnit) {
 
         StringBuilder code = new StringBuilder();
@@ -60,16 +107,11 @@ public class JasminGenerator {
         String className = ollirResult.getOllirClass().getClassName();
         code.append(".class ").append(className).append(NL).append(NL);
 
-        var defaultConstructor = new StringBuilder();
-        defaultConstructor.append(".method public <init>()V").append(NL).append(TAB).append("aload_0").append(NL).append(TAB);
-
-        if (classUnit.getSuperClass() == null || classUnit.getSuperClass().equals("Object")) {
-            code.append(".super java/lang/Object").append(NL);
-            defaultConstructor.append("invokespecial java/lang/Object/<init>()V");
-        } else {
-            code.append(".super ").append(classUnit.getSuperClass()).append(NL);
-            defaultConstructor.append("invokespecial ").append(classUnit.getSuperClass()).append("/<init>()V");
-        }
+        String superClass = classUnit.getSuperClass() == null || classUnit.getSuperClass().equals("Object")
+                ? "java/lang/Object"
+                : classUnit.getSuperClass();
+        code.append(".super ").append(superClass).append(NL);
+        if (classFile != null) classFile.setClass(className, superClass);
 
         var classFields = ollirResult.getOllirClass().getFields();
         for (var field : classFields) {
@@ -81,21 +123,86 @@ public class JasminGenerator {
                 default -> throw new IllegalStateException("Unexpected value: " + accessModifierName);
             };
             String fieldName = field.getFieldName();
-            String fieldType = ollirTypeToJasmin(field.getFieldType());
+            String fieldType = utils.ollirTypeToJasmin(field.getFieldType());
             code.append(".field ").append(newAccessModifierName).append(" ").append(fieldName).append(" ").append(fieldType).append(NL);
+            if (classFile != null) {
+                classFile.addField(getAccessFlags(field.getFieldAccessModifier()), fieldName, fieldType);
+            }
         }
 
-        defaultConstructor.append(NL).append(TAB).append("return").append(NL).append(".end method").append(NL);
-        code.append(defaultConstructor);
+        var defaultConstructor = new JasminCode();
+        defaultConstructor.add(Opcode.ALOAD, 0);
+        defaultConstructor.add(Opcode.INVOKESPECIAL, superClass + "/<init>()V");
+        defaultConstructor.add(Opcode.RETURN);
+
+        code.append(".method public <init>()V").append(NL);
+        defaultConstructor.appendTo(code);
+        code.append(".end method").append(NL);
+        if (classFile != null) {
+            classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V",
+                    JasminStackAnalysis.maxStack(defaultConstructor), 1, defaultConstructor);
+        }
+
+        // the cache only has the Jasmin code of the methods, not their instructions
+        var ollirMethods = methodCache != null && classFile == null
+                ? OllirMethods.split(ollirResult.getOllirCode())
+                : null;
 
         for (var method : ollirResult.getOllirClass().getMethods()) {
             if (method.isConstructMethod()) continue;
-            code.append(generators.apply(method));
+
+            if (ollirMethods != null && ollirMethods.contains(method.getMethodName())) {
+                code.append(methodCache.get(getMethodKey(ollirMethods, method), () -> generators.apply(method)));
+            } else {
+                code.append(generators.apply(method));
+            }
         }
 
         return code.toString();
     }
 
+    /**
+     * The Jasmin code of a method depends on its OLLIR code, on the registers given to its variables and on the
+     * declarations of the class (imports, fields, ...).
+     */
+    private String getMethodKey(OllirMethods ollirMethods, Method method) {
+        StringBuilder registers = new StringBuilder();
+        method.getVarTable().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> registers.append(entry.getKey()).append("=")
+                        .append(entry.getValue().getVirtualReg()).append(NL));
+
+        return HashUtils.sha256(ollirMethods.getHeader(), ollirMethods.get(method.getMethodName()),
+                registers.toString(), String.valueOf(peephole != null));
+    }
+
+    /**
+     * Counts how many times each peephole rule was applied, in the methods that were not in the cache.
+     */
+    private void reportPeephole() {
+        var message = new StringBuilder("Peephole rules applied:\n");
+        for (var rule : JasminPeephole.Rule.values()) {
+            if (peephole.getHits(rule) > 0) {
+                message.append(rule).append(": ").append(peephole.getHits(rule)).append("\n");
+            }
+        }
+
+        reports.add(Report.newLog(
+                Stage.GENERATION,
+                1, 1,
+                message.toString(),
+                null));
+    }
+
+    private static int getAccessFlags(AccessModifier modifier) {
+        return switch (modifier) {
+            case PUBLIC -> ClassFileWriter.ACC_PUBLIC;
+            case PRIVATE -> ClassFileWriter.ACC_PRIVATE;
+            case PROTECTED -> ClassFileWriter.ACC_PROTECTED;
+            case DEFAULT -> 0;
+        };
+    }
+
     private String generateMethod(Method method) {
 
         instructionGenerator.setMethod(method);
@@ -109,44 +216,59 @@ public class JasminGenerator {
 
         var methodName = method.getMethodName();
 
-        if (method.isStaticMethod())
-            code.append(NL).append(".method ").append(modifier).append("static ").append(methodName).append("(");
-        else code.append(NL).append(".method ").append(modifier).append(methodName).append("(");
+        var descriptor = utils.getDescriptor(method);
 
-        var parameters = method.getParams();
-        for (var parameter : parameters) {
-            String parameterType = ollirTypeToJasmin(parameter.getType());
-            code.append(parameterType);
-        }
+        if (method.isStaticMethod())
+            code.append(NL).append(".method ").append(modifier).append("static ").append(methodName);
+        else code.append(NL).append(".method ").append(modifier).append(methodName);
+        code.append(descriptor).append(NL);
 
-        var returnType = ollirTypeToJasmin(method.getReturnType());
-        code.append(")").append(returnType).append(NL);
 
+        // the labels placed before each instruction
+        Map<Instruction, List<String>> labels = new IdentityHashMap<>();
+        for (var label : method.getLabels().entrySet()) {
+            labels.computeIfAbsent(label.getValue(), inst -> new ArrayList<>()).add(label.getKey());
+        }
 
-        StringBuilder instructionCode = new StringBuilder();
+        JasminCode instructionCode = new JasminCode();
         for (Instruction inst : method.getInstructions()) {
 
-            for (var label : method.getLabels().entrySet()){
-                if (label.getValue() == inst)
-                    instructionCode.append(label.getKey()).append(":").append(NL);
+            for (var label : labels.getOrDefault(inst, List.of())) {
+                instructionCode.place(instructionCode.getLabel(label));
             }
-            String instCode = instructionGenerator.generate(inst);
-            instructionCode.append(instCode);
+            // the register allocator coalesces copies, which then do nothing
+            if (instructionGenerator.isSelfMove(inst)) continue;
+
+            instructionGenerator.generate(inst, instructionCode);
 
             if (inst.getInstType() == InstructionType.CALL &&
                     ((CallInstruction) inst).getReturnType().getTypeOfElement() != ElementType.VOID)
-                instructionCode.append("pop").append(NL);
+                instructionCode.add(Opcode.POP);
         }
 
-        int stackSize = instructionGenerator.getMaxStackSize();
+        if (peephole != null) {
+            Profiler.measure("peephole", () -> {
+                int hits = peephole.getTotalHits();
+                peephole.optimize(instructionCode);
+                Profiler.count(peephole.getTotalHits() - hits, "rewrites");
+            });
+        }
+
+        int stackSize = JasminStackAnalysis.maxStack(instructionCode);
         code.append(TAB).append(".limit stack ").append(stackSize).append(NL);
 
         int localSize = getLocalSize(method);
         code.append(TAB).append(".limit locals ").append(localSize).append(NL);
 
-        code.append(instructionCode);
+        instructionCode.appendTo(code);
         code.append(".end method").append(NL);
 
+        if (classFile != null) {
+            int access = getAccessFlags(method.getMethodAccessModifier())
+                    | (method.isStaticMethod() ? ClassFileWriter.ACC_STATIC : 0);
+            classFile.addMethod(access, methodName, descriptor, stackSize, localSize, instructionCode);
+        }
+
         return code.toString();
     }
 
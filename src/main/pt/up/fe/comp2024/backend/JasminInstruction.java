@@ -0,0 +1,162 @@
+package pt.up.fe.comp2024.backend;
+
+import static pt.up.fe.comp2024.backend.JasminUtils.NL;
+import static pt.up.fe.comp2024.backend.JasminUtils.TAB;
+
+/**
+ * One instruction of the code of a method, or the position of a label.
+ * <p>
+ * Depending on the opcode, the instruction has a number (the register of a load, store or iinc, or the value of a
+ * constant), a reference (the class, field or method it uses, as written in Jasmin) or a label.
+ */
+public class JasminInstruction {
+
+    private final Opcode opcode;
+    private final int value;
+    private final int increment;
+    private final String reference;
+    private final JasminLabel label;
+
+    private JasminInstruction(Opcode opcode, int value, int increment, String reference, JasminLabel label) {
+        this.opcode = opcode;
+        this.value = value;
+        this.increment = increment;
+        this.reference = reference;
+        this.label = label;
+    }
+
+    public static JasminInstruction of(Opcode opcode) {
+        return new JasminInstruction(opcode, 0, 0, null, null);
+    }
+
+    /**
+     * @param value the register of a load or store, or the value of a constant
+     */
+    public static JasminInstruction of(Opcode opcode, int value) {
+        return new JasminInstruction(opcode, value, 0, null, null);
+    }
+
+    /**
+     * @param reference the class, field or method used by the instruction
+     */
+    public static JasminInstruction of(Opcode opcode, String reference) {
+        return new JasminInstruction(opcode, 0, 0, reference, null);
+    }
+
+    /**
+     * @param label the label a branch jumps to, or the label placed by {@link Opcode#LABEL}
+     */
+    public static JasminInstruction of(Opcode opcode, JasminLabel label) {
+        return new JasminInstruction(opcode, 0, 0, null, label);
+    }
+
+    public static JasminInstruction iinc(int register, int increment) {
+        return new JasminInstruction(Opcode.IINC, register, increment, null, null);
+    }
+
+    /**
+     * @return the shortest instruction that pushes the value
+     */
+    public static JasminInstruction constant(int value) {
+        if (value >= -1 && value <= 5) return of(Opcode.ICONST, value);
+        if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) return of(Opcode.BIPUSH, value);
+        if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) return of(Opcode.SIPUSH, value);
+        return of(Opcode.LDC, value);
+    }
+
+    public Opcode getOpcode() {
+        return opcode;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public int getIncrement() {
+        return increment;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public JasminLabel getLabel() {
+        return label;
+    }
+
+    public int getPops() {
+        return switch (opcode) {
+            case INVOKESTATIC -> argumentSlots(reference);
+            case INVOKEVIRTUAL, INVOKESPECIAL -> argumentSlots(reference) + 1;
+            case GETFIELD -> 1;
+            case PUTFIELD -> 1 + typeSlots(reference.substring(reference.lastIndexOf(' ') + 1));
+            default -> opcode.getPops();
+        };
+    }
+
+    public int getPushes() {
+        return switch (opcode) {
+            case INVOKESTATIC, INVOKEVIRTUAL, INVOKESPECIAL ->
+                    typeSlots(reference.substring(reference.lastIndexOf(')') + 1));
+            case GETFIELD -> typeSlots(reference.substring(reference.lastIndexOf(' ') + 1));
+            default -> opcode.getPushes();
+        };
+    }
+
+    public void appendTo(StringBuilder code) {
+        if (opcode == Opcode.LABEL) {
+            code.append(label.getName()).append(":").append(NL);
+            return;
+        }
+
+        code.append(TAB).append(opcode.getMnemonic());
+        switch (opcode) {
+            // registers 0 to 3 have instructions of their own, one byte shorter
+            case ILOAD, ALOAD, ISTORE, ASTORE -> code.append(value <= 3 ? "_" : " ").append(value);
+            case ICONST -> code.append("_").append(value == -1 ? "m1" : String.valueOf(value));
+            case BIPUSH, SIPUSH, LDC -> code.append(" ").append(value);
+            case IINC -> code.append(" ").append(value).append(" ").append(increment);
+            default -> {
+                if (reference != null) code.append(" ").append(reference);
+                if (label != null) code.append(" ").append(label.getName());
+            }
+        }
+        code.append(NL);
+    }
+
+    @Override
+    public String toString() {
+        var code = new StringBuilder();
+        appendTo(code);
+        return code.toString().strip();
+    }
+
+    /**
+     * @return the stack slots taken by the arguments of a method, such as {@code Foo/bar(I[IJ)V}
+     */
+    private static int argumentSlots(String method) {
+        String parameters = method.substring(method.indexOf('(') + 1, method.lastIndexOf(')'));
+        int slots = 0;
+        int i = 0;
+        while (i < parameters.length()) {
+            int start = i;
+            while (parameters.charAt(i) == '[') {
+                i++;
+            }
+            if (parameters.charAt(i) == 'L') {
+                i = parameters.indexOf(';', i);
+            }
+            i++;
+            slots += typeSlots(parameters.substring(start, i));
+        }
+        return slots;
+    }
+
+    private static int typeSlots(String descriptor) {
+        return switch (descriptor) {
+            case "V" -> 0;
+            case "J", "D" -> 2;
+            default -> 1;
+        };
+    }
+}
@@ -3,27 +3,25 @@ package pt.up.fe.comp2024.backend;
 import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
-import pt.up.fe.specs.util.classmap.FunctionClassMap;
+import pt.up.fe.specs.util.classmap.BiConsumerClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
-import pt.up.fe.specs.util.utilities.StringLines;
 
-import java.util.stream.Collectors;
 import static pt.up.fe.comp2024.backend.JasminUtils.*;
 
 public class JasminInstructionGenerator {
 
     private final OllirResult ollirResult;
-    private final FunctionClassMap<TreeNode, String> instructionGenerator;
+    private final JasminUtils utils;
+    private final BiConsumerClassMap<TreeNode, JasminCode> instructionGenerator;
     private final JasminOperandGenerator operandGenerator;
     private Method currentMethod;
-    private int stackSize;
-    private int maxStackSize;
 
 
-    public JasminInstructionGenerator(OllirResult ollirResult) {
+    public JasminInstructionGenerator(OllirResult ollirResult, JasminUtils utils) {
         this.ollirResult = ollirResult;
-        this.operandGenerator = new JasminOperandGenerator(ollirResult, this);
-        this.instructionGenerator = new FunctionClassMap<>();
+        this.utils = utils;
+        this.operandGenerator = new JasminOperandGenerator();
+        this.instructionGenerator = new BiConsumerClassMap<>();
         instructionGenerator.put(AssignInstruction.class, this::generateAssign);
         instructionGenerator.put(CallInstruction.class, this::generateCallInstruction);
         instructionGenerator.put(SingleOpInstruction.class, this::generateSingleOp);
@@ -40,354 +38,336 @@ public class JasminInstructionGenerator {
     public void setMethod(Method method){
         this.currentMethod = method;
         this.operandGenerator.setCurrentMethod(method);
-        this.stackSize = 0;
-        this.maxStackSize = 0;
+        this.utils.resetTemp();
     }
 
-    public int getMaxStackSize() {
-        return maxStackSize;
-    }
-
-    public void pushToStack(){
-        stackSize++;
-        if (stackSize > maxStackSize) maxStackSize = stackSize;
-    }
+    /**
+     * @return true if the instruction copies a variable into another that was given the same register
+     */
+    public boolean isSelfMove(Instruction instruction) {
+        if (!(instruction instanceof AssignInstruction assign)
+                || !(assign.getDest() instanceof Operand dest) || dest instanceof ArrayOperand
+                || !(assign.getRhs() instanceof SingleOpInstruction copy)
+                || !(copy.getSingleOperand() instanceof Operand source) || source instanceof ArrayOperand) {
+            return false;
+        }
 
-    public void popFromStack(int values){
-        stackSize -= values;
+        var varTable = currentMethod.getVarTable();
+        return varTable.containsKey(dest.getName()) && varTable.containsKey(source.getName())
+                && getVariableRegister(currentMethod, dest.getName()) == getVariableRegister(currentMethod, source.getName());
     }
 
-
-    public String generate(Instruction instruction) {
-        String code = instructionGenerator.apply(instruction);
-        return StringLines.getLines(code).stream().collect(Collectors.joining(NL + TAB, TAB, NL));
+    /**
+     * Appends the instructions that do what the OLLIR instruction does.
+     */
+    public void generate(Instruction instruction, JasminCode code) {
+        instructionGenerator.accept(instruction, code);
     }
 
-    private String generateAssign(AssignInstruction assign) {
-        StringBuilder code = new StringBuilder();
+    private void generateAssign(AssignInstruction assign, JasminCode code) {
 
         Operand lhs = (Operand) assign.getDest();
         Instruction rhs = assign.getRhs();
         int reg = getVariableRegister(currentMethod, lhs.getName());
 
-        if (rhs instanceof BinaryOpInstruction binaryOpInstruction){
+        if (rhs instanceof BinaryOpInstruction binaryOpInstruction && !(lhs instanceof ArrayOperand)){
             var op = binaryOpInstruction.getOperation().getOpType();
             if (op.equals(OperationType.ADD) || op.equals(OperationType.SUB)){
                 var leftOp = binaryOpInstruction.getLeftOperand();
                 var rightOp = binaryOpInstruction.getRightOperand();
-                if (rightOp instanceof LiteralElement rightLiteral && leftOp instanceof Operand left) {
+                if (rightOp instanceof LiteralElement rightLiteral && leftOp instanceof Operand left
+                        && !(left instanceof ArrayOperand)) {
                     int leftReg = getVariableRegister(currentMethod, left.getName());
-                    if (rightLiteral.isLiteral()) {
-                        int number = Integer.parseInt(rightLiteral.getLiteral());
-                        if (leftReg == reg && (number >= -128 && number < 128)) return "iinc " + reg + " " + number + NL;
+                    int number = Integer.parseInt(rightLiteral.getLiteral());
+                    if (op.equals(OperationType.SUB)) number = -number;
+                    if (leftReg == reg && (number >= -128 && number < 128)) {
+                        code.add(JasminInstruction.iinc(reg, number));
+                        return;
                     }
                 }
-                if (leftOp instanceof LiteralElement leftLiteral && rightOp instanceof Operand right){
+                // only an addition can take the literal on the left
+                if (op.equals(OperationType.ADD) && leftOp instanceof LiteralElement leftLiteral
+                        && rightOp instanceof Operand right && !(right instanceof ArrayOperand)){
                     int rightReg = getVariableRegister(currentMethod, right.getName());
-                    if (leftLiteral.isLiteral()) {
-                        int number = Integer.parseInt(leftLiteral.getLiteral());
-                        if (rightReg == reg && (number >= -128 && number < 128)) return "iinc " + reg + " " + number + NL;
+                    int number = Integer.parseInt(leftLiteral.getLiteral());
+                    if (rightReg == reg && (number >= -128 && number < 128)) {
+                        code.add(JasminInstruction.iinc(reg, number));
+                        return;
                     }
                 }
             }
 
         }
-        String assignedCode = instructionGenerator.apply(assign.getRhs());
 
         if (lhs instanceof ArrayOperand arrayOperand) {
 
-            pushToStack();
-
-            if (reg > 3) code.append("aload ").append(reg).append(NL);
-            else code.append("aload_").append(reg).append(NL);
+            code.add(Opcode.ALOAD, reg);
 
             for (var index : arrayOperand.getIndexOperands()) {
-                code.append(operandGenerator.generate(index));
+                operandGenerator.generate(index, code);
             }
 
-            code.append(assignedCode);
-            code.append("iastore").append(NL);
-
-            popFromStack(3);
+            generate(rhs, code);
+            code.add(Opcode.IASTORE);
 
         } else {
-            code.append(assignedCode);
+            generate(rhs, code);
 
             var type = lhs.getType().getTypeOfElement();
             switch (type) {
-                case INT32, BOOLEAN -> {
-                    popFromStack(1);
-                    if (reg > 3) code.append("istore ").append(reg).append(NL);
-                    else code.append("istore_").append(reg).append(NL);
-                }
-                case CLASS, OBJECTREF, STRING, ARRAYREF -> {
-                    popFromStack(1);
-                    if (reg > 3) code.append("astore ").append(reg).append(NL);
-                    else code.append("astore_").append(reg).append(NL);
-                }
+                case INT32, BOOLEAN -> code.add(Opcode.ISTORE, reg);
+                case CLASS, OBJECTREF, STRING, ARRAYREF -> code.add(Opcode.ASTORE, reg);
                 case VOID -> {}
                 default -> throw new NotImplementedException(type.name());
             }
         }
-        return code.toString();
     }
 
-    private String generateSingleOp(SingleOpInstruction singleOp) {
-        return operandGenerator.generate(singleOp.getSingleOperand());
+    private void generateSingleOp(SingleOpInstruction singleOp, JasminCode code) {
+        operandGenerator.generate(singleOp.getSingleOperand(), code);
     }
 
-    private String generateBinaryOp(BinaryOpInstruction binaryOp) {
+    private void generateBinaryOp(BinaryOpInstruction binaryOp, JasminCode code) {
 
-        StringBuilder code = new StringBuilder();
+        operandGenerator.generate(binaryOp.getLeftOperand(), code);
 
-        String leftCode = operandGenerator.generate(binaryOp.getLeftOperand());
-        String rightCode = operandGenerator.generate(binaryOp.getRightOperand());
-        code.append(leftCode).append(rightCode);
-
-        popFromStack(1);
         var op = binaryOp.getOperation().getOpType();
-        String opType = getBinaryOp(op);
         if (op == OperationType.LTH) {
 
-            popFromStack(1);
-            int tmp = getTemp();
-            String trueLabel = "compinchas_" + tmp + "_true";
-            String endLabel = "compinchas_" + tmp + "_end";
-            code.append("isub").append(NL)
-                    .append("iflt ").append(trueLabel).append(NL)
-                    .append("iconst_0").append(NL)
-                    .append("goto ").append(endLabel).append(NL)
-                    .append(trueLabel).append(":").append(NL)
-                    .append("iconst_1").append(NL)
-                    .append(endLabel).append(":").append(NL);
-            return code.toString();
+            // against 0 the sign is enough, other values are compared directly as their difference could overflow
+            boolean againstZero = isZero(binaryOp.getRightOperand());
+            if (!againstZero) operandGenerator.generate(binaryOp.getRightOperand(), code);
+
+            int tmp = utils.getTemp();
+            JasminLabel trueLabel = code.getLabel("compinchas_" + tmp + "_true");
+            JasminLabel endLabel = code.getLabel("compinchas_" + tmp + "_end");
+            code.add(againstZero ? Opcode.IFLT : Opcode.IF_ICMPLT, trueLabel);
+            code.add(JasminInstruction.constant(0));
+            code.add(Opcode.GOTO, endLabel);
+            code.place(trueLabel);
+            code.add(JasminInstruction.constant(1));
+            code.place(endLabel);
+            return;
         }
 
-        code.append(opType).append(NL);
-        return code.toString();
+        operandGenerator.generate(binaryOp.getRightOperand(), code);
+        code.add(getBinaryOp(op));
+    }
+
+    private static boolean isZero(Element element) {
+        return element instanceof LiteralElement literal && literal.getLiteral().equals("0");
     }
 
-    private String generateReturn(ReturnInstruction returnInst) {
-        StringBuilder code = new StringBuilder();
+    private void generateReturn(ReturnInstruction returnInst, JasminCode code) {
 
         if (returnInst.getOperand() != null) {
-            code.append(operandGenerator.generate(returnInst.getOperand()));
+            operandGenerator.generate(returnInst.getOperand(), code);
         }
 
-        String type = getReturnType(returnInst.getReturnType().getTypeOfElement());
-
-        code.append(type).append(NL);
-        return code.toString();
+        code.add(getReturnType(returnInst.getReturnType().getTypeOfElement()));
     }
 
-    private String generateCallInstruction(CallInstruction callInstruction){
-        return switch (callInstruction.getInvocationType()){
-            case invokestatic -> handleStaticCall(callInstruction);
-            case NEW -> handleNewCall(callInstruction);
-            case invokespecial -> handleSpecialCall(callInstruction);
-            case invokevirtual -> handleVirtualCall(callInstruction);
-            case arraylength -> handleArrayLengthCall(callInstruction);
+    private void generateCallInstruction(CallInstruction callInstruction, JasminCode code){
+        switch (callInstruction.getInvocationType()){
+            case invokestatic -> handleStaticCall(callInstruction, code);
+            case NEW -> handleNewCall(callInstruction, code);
+            case invokespecial -> handleSpecialCall(callInstruction, code);
+            case invokevirtual -> handleVirtualCall(callInstruction, code);
+            case arraylength -> handleArrayLengthCall(callInstruction, code);
             default -> throw new NotImplementedException("Invocation type not supported: " + callInstruction.getInvocationType());
-        };
+        }
     }
 
-    private String handleStaticCall(CallInstruction callInstruction) {
-        StringBuilder code = new StringBuilder();
-
-        callInstruction.getArguments().forEach((arg) -> code.append(operandGenerator.generate(arg)));
-        code.append("invokestatic ");
-
-        Element caller = callInstruction.getCaller();
-        String callerCode = operandGenerator.generate(caller);
-        code.append(getImportedClassName(callerCode)).append("/");
-
-        Element methodName = callInstruction.getMethodName();
-        String methodCode = operandGenerator.generate(methodName);
-        code.append(methodCode);
-
-        callInstruction.getArguments().forEach((arg) -> code.append(ollirTypeToJasmin(arg.getType())));
+    private void handleStaticCall(CallInstruction callInstruction, JasminCode code) {
 
-        code.append(")").append(ollirTypeToJasmin(callInstruction.getReturnType())).append(NL);
+        callInstruction.getArguments().forEach((arg) -> operandGenerator.generate(arg, code));
 
-        popFromStack(callInstruction.getArguments().size());
-
-        return code.toString();
+        String className = utils.getImportedClassName(((Operand) callInstruction.getCaller()).getName());
+        code.add(Opcode.INVOKESTATIC, className + "/" + getMethodDescriptor(callInstruction, className));
     }
 
-    private String handleNewCall(CallInstruction callInstruction) {
-        StringBuilder code = new StringBuilder();
+    private void handleNewCall(CallInstruction callInstruction, JasminCode code) {
 
-        callInstruction.getArguments().forEach((obj) -> code.append(operandGenerator.generate(obj)));
+        callInstruction.getArguments().forEach((obj) -> operandGenerator.generate(obj, code));
 
         Operand caller = (Operand) callInstruction.getCaller();
 
         if (caller.getType() instanceof ArrayType) {
-            code.append("newarray int").append(NL);
-            return code.toString();
+            code.add(Opcode.NEWARRAY, "int");
+            return;
         }
 
         String className = caller.getName();
-        String fullClassName = getImportedClassName(className);
-        code.append("new ").append(fullClassName).append(NL).append("dup").append(NL);
-
-        pushToStack();
-        pushToStack();
-
-        return code.toString();
+        String fullClassName = utils.getImportedClassName(className);
+        code.add(Opcode.NEW, fullClassName);
+        code.add(Opcode.DUP);
     }
 
-    private String handleSpecialCall(CallInstruction callInstruction) {
-        StringBuilder code = new StringBuilder();
+    private void handleSpecialCall(CallInstruction callInstruction, JasminCode code) {
 
         var objectClass = (Operand) callInstruction.getCaller();
         var elementType = objectClass.getType();
         var elementName = ((ClassType) elementType).getName();
-        code.append(operandGenerator.generate(objectClass)).append("invokespecial ");
-        if (elementType.getTypeOfElement() == ElementType.THIS) code.append(ollirResult.getOllirClass().getSuperClass());
-        else code.append(getImportedClassName(elementName));
-        code.append("/<init>").append("(");
+        operandGenerator.generate(objectClass, code);
 
-        callInstruction.getArguments().forEach((op) -> code.append(ollirTypeToJasmin(op.getType())));
-        code.append(")").append(ollirTypeToJasmin(callInstruction.getReturnType())).append(NL);
+        String className = elementType.getTypeOfElement() == ElementType.THIS
+                ? ollirResult.getOllirClass().getSuperClass()
+                : utils.getImportedClassName(elementName);
 
-        return code.toString();
-    }
+        var descriptor = new StringBuilder();
+        descriptor.append(className).append("/<init>").append("(");
+        callInstruction.getArguments().forEach((op) -> descriptor.append(utils.ollirTypeToJasmin(op.getType())));
+        descriptor.append(")").append(utils.ollirTypeToJasmin(callInstruction.getReturnType()));
 
-    private String handleVirtualCall(CallInstruction callInstruction) {
-        StringBuilder code = new StringBuilder();
+        code.add(Opcode.INVOKESPECIAL, descriptor.toString());
+    }
 
-        popFromStack(1);
+    private void handleVirtualCall(CallInstruction callInstruction, JasminCode code) {
 
         Operand object = (Operand) callInstruction.getCaller();
         String elementName = ((ClassType) object.getType()).getName();
-        String fullElementName = getImportedClassName(elementName);
-        code.append(operandGenerator.generate(object)).append(NL);
+        String fullElementName = utils.getImportedClassName(elementName);
+        operandGenerator.generate(object, code);
 
-        Element methodName = callInstruction.getMethodName();
-        callInstruction.getArguments().forEach((op) -> code.append(operandGenerator.generate(op)));
-        code.append("invokevirtual ").append(fullElementName).append("/").append(operandGenerator.generate(methodName));
+        callInstruction.getArguments().forEach((op) -> operandGenerator.generate(op, code));
+        code.add(Opcode.INVOKEVIRTUAL, fullElementName + "/" + getMethodDescriptor(callInstruction, fullElementName));
+    }
+
+    private void handleArrayLengthCall(CallInstruction callInstruction, JasminCode code){
+        callInstruction.getOperands().forEach((op) -> operandGenerator.generate(op, code));
+        code.add(Opcode.ARRAYLENGTH);
+    }
 
-        callInstruction.getArguments().forEach((arg) -> code.append(ollirTypeToJasmin(arg.getType())));
-        code.append(")").append(ollirTypeToJasmin(callInstruction.getReturnType())).append(NL);
+    /**
+     * @return the name of the called method followed by the types of its arguments and its return type
+     */
+    private String getMethodDescriptor(CallInstruction callInstruction, String className) {
+        String methodName = ((LiteralElement) callInstruction.getMethodName()).getLiteral().replace("\"", "");
+
+        // a call to a method of the class with the types it was declared with uses the descriptor of the method
+        if (className.equals(ollirResult.getOllirClass().getClassName())) {
+            var method = utils.getClassMethod(methodName);
+            if (method != null && matches(method, callInstruction)) {
+                return methodName + utils.getDescriptor(method);
+            }
+        }
 
-        popFromStack(callInstruction.getArguments().size());
+        var descriptor = new StringBuilder();
+        descriptor.append(methodName).append("(");
+        callInstruction.getArguments().forEach((arg) -> descriptor.append(utils.ollirTypeToJasmin(arg.getType())));
+        descriptor.append(")").append(utils.ollirTypeToJasmin(callInstruction.getReturnType()));
 
-        return code.toString();
+        return descriptor.toString();
     }
-    private String handleArrayLengthCall(CallInstruction callInstruction){
-        var code = new StringBuilder();
-        callInstruction.getOperands().forEach((op) -> code.append(operandGenerator.generate(op)));
-        code.append("arraylength").append(NL);
-        return code.toString();
+
+    private static boolean matches(Method method, CallInstruction callInstruction) {
+        var parameters = method.getParams();
+        var arguments = callInstruction.getArguments();
+        if (parameters.size() != arguments.size()) return false;
+
+        for (int i = 0; i < arguments.size(); i++) {
+            if (!sameType(parameters.get(i).getType(), arguments.get(i).getType())) return false;
+        }
+        return sameType(method.getReturnType(), callInstruction.getReturnType());
     }
 
-    private String generatePutFieldInstruction(PutFieldInstruction instruction){
-        StringBuilder code = new StringBuilder();
+    /**
+     * @return true if both types are written the same way in Jasmin
+     */
+    private static boolean sameType(Type first, Type second) {
+        if (first.getTypeOfElement() != second.getTypeOfElement()) return false;
+
+        if (first instanceof ArrayType firstArray) {
+            return second instanceof ArrayType secondArray && firstArray.getElementType().getTypeOfElement()
+                    == secondArray.getElementType().getTypeOfElement();
+        }
+        if (first instanceof ClassType firstClass) {
+            return second instanceof ClassType secondClass && firstClass.getName().equals(secondClass.getName());
+        }
+        return true;
+    }
 
-        Element object = instruction.getObject();
-        String objectCode = operandGenerator.generate(object);
-        code.append(objectCode);
+    private void generatePutFieldInstruction(PutFieldInstruction instruction, JasminCode code){
 
-        Element value = instruction.getValue();
-        String valueCode = operandGenerator.generate(value);
-        code.append(valueCode);
+        operandGenerator.generate(instruction.getObject(), code);
+        operandGenerator.generate(instruction.getValue(), code);
 
         String className = ((ClassType) instruction.getObject().getType()).getName();
         String fieldName = instruction.getField().getName();
-        String fieldType = ollirTypeToJasmin(instruction.getField().getType());
+        String fieldType = utils.ollirTypeToJasmin(instruction.getField().getType());
 
-        code.append("putfield ").append(className).append("/").append(fieldName).append(" ").append(fieldType).append(NL);
-
-        popFromStack(2);
-
-        return code.toString();
+        code.add(Opcode.PUTFIELD, className + "/" + fieldName + " " + fieldType);
     }
-    private String generateGetFieldInstruction(GetFieldInstruction instruction){
-        StringBuilder code = new StringBuilder();
 
-        Element object = instruction.getObject();
-        String objectCode = operandGenerator.generate(object);
-        code.append(objectCode);
+    private void generateGetFieldInstruction(GetFieldInstruction instruction, JasminCode code){
+
+        operandGenerator.generate(instruction.getObject(), code);
 
         String className = ((ClassType) instruction.getObject().getType()).getName();
         String fieldName = instruction.getField().getName();
-        String fieldType = ollirTypeToJasmin(instruction.getField().getType());
-        code.append("getfield ").append(className).append("/").append(fieldName).append(" ").append(fieldType).append(NL);
+        String fieldType = utils.ollirTypeToJasmin(instruction.getField().getType());
 
-        return code.toString();
+        code.add(Opcode.GETFIELD, className + "/" + fieldName + " " + fieldType);
     }
 
-    private String generateOpCondInst(OpCondInstruction opCondInstruction){
-        StringBuilder code = new StringBuilder();
+    private void generateOpCondInst(OpCondInstruction opCondInstruction, JasminCode code){
         var condition = opCondInstruction.getCondition();
-        var type = condition.getInstType();
-        switch (type){
-            case BINARYOPER -> code.append(generateBinaryOpCond((BinaryOpInstruction) condition));
-            case UNARYOPER -> code.append(generateUnaryOpCond((UnaryOpInstruction) condition));
+        var label = code.getLabel(opCondInstruction.getLabel());
+        switch (condition.getInstType()){
+            case BINARYOPER -> generateBinaryOpCond((BinaryOpInstruction) condition, label, code);
+            case UNARYOPER -> generateUnaryOpCond((UnaryOpInstruction) condition, label, code);
+            default -> throw new NotImplementedException(condition.getInstType());
         }
-        code.append(opCondInstruction.getLabel()).append(NL);
-        return code.toString();
     }
-    private String generateGotoInst(GotoInstruction gotoInstruction){
-        StringBuilder code = new StringBuilder();
-        var label = gotoInstruction.getLabel();
-        code.append("goto ").append(label).append(NL);
-        return code.toString();
+
+    private void generateGotoInst(GotoInstruction gotoInstruction, JasminCode code){
+        code.add(Opcode.GOTO, code.getLabel(gotoInstruction.getLabel()));
     }
 
-    private String generateBinaryOpCond(BinaryOpInstruction binaryOpInstruction){
+    private void generateBinaryOpCond(BinaryOpInstruction binaryOpInstruction, JasminLabel label, JasminCode code){
 
-        StringBuilder code = new StringBuilder();
         var type = binaryOpInstruction.getOperation().getOpType();
         var rightOp = binaryOpInstruction.getRightOperand();
         var leftOp = binaryOpInstruction.getLeftOperand();
 
-        popFromStack(1);
-
-        if (type == OperationType.LTH) {
-            popFromStack(1);
-            code.append(operandGenerator.generate(leftOp)).append(operandGenerator.generate(rightOp)).append("isub\n").append("iflt ");
+        if (type == OperationType.LTH || type == OperationType.GTE) {
+            operandGenerator.generate(leftOp, code);
+            if (isZero(rightOp)) {
+                code.add(getBinaryOp(type), label);
+            } else {
+                operandGenerator.generate(rightOp, code);
+                code.add(type == OperationType.LTH ? Opcode.IF_ICMPLT : Opcode.IF_ICMPGE, label);
+            }
         }
-        else if (type == OperationType.GTE) {
-            popFromStack(1);
-            code.append(operandGenerator.generate(leftOp)).append(operandGenerator.generate(rightOp)).append("isub\n").append("ifge ");
+        else if (type == OperationType.ANDB) {
+            generate(binaryOpInstruction, code);
+            code.add(Opcode.IFNE, label);
         }
-        else if (type == OperationType.ANDB)
-            code.append(instructionGenerator.apply(binaryOpInstruction)).append("ifne ");
-        else return null;
-
-        return code.toString();
+        else throw new NotImplementedException(type);
     }
 
-    private String generateUnaryOpCond(UnaryOpInstruction unaryOpInstruction){
-        StringBuilder code = new StringBuilder();
-        var op = unaryOpInstruction.getOperation();
-        var type = op.getOpType();
-        if (type == OperationType.NOTB)  {
-            code.append(operandGenerator.generate(unaryOpInstruction.getOperand())).append("ifeq ");
-            popFromStack(1);
-        }
-        return code.toString();
+    private void generateUnaryOpCond(UnaryOpInstruction unaryOpInstruction, JasminLabel label, JasminCode code){
+        var type = unaryOpInstruction.getOperation().getOpType();
+        if (type != OperationType.NOTB) throw new NotImplementedException(type);
+
+        operandGenerator.generate(unaryOpInstruction.getOperand(), code);
+        code.add(Opcode.IFEQ, label);
     }
 
-    private String generateSingleOpCondInst(SingleOpCondInstruction singleOpCondInstruction){
-        StringBuilder code = new StringBuilder();
+    private void generateSingleOpCondInst(SingleOpCondInstruction singleOpCondInstruction, JasminCode code){
         var condition = singleOpCondInstruction.getCondition();
-        var type = condition.getInstType();
-        if (type == InstructionType.NOPER) {
-            code.append(operandGenerator.generate(condition.getSingleOperand())).append("ifne ").append(singleOpCondInstruction.getLabel());
-            popFromStack(1);
-        }
-        return code.toString();
+        if (condition.getInstType() != InstructionType.NOPER) throw new NotImplementedException(condition.getInstType());
+
+        operandGenerator.generate(condition.getSingleOperand(), code);
+        code.add(Opcode.IFNE, code.getLabel(singleOpCondInstruction.getLabel()));
     }
 
-    private String generateUnaryOpInst(UnaryOpInstruction unaryOpInstruction){
-        StringBuilder code = new StringBuilder();
+    private void generateUnaryOpInst(UnaryOpInstruction unaryOpInstruction, JasminCode code){
         var operation = unaryOpInstruction.getOperation();
-        unaryOpInstruction.getOperands().forEach((op) -> code.append(operandGenerator.generate(op)));
+        unaryOpInstruction.getOperands().forEach((op) -> operandGenerator.generate(op, code));
         if (operation.getOpType() == OperationType.NOTB) {
-            code.append("iconst_1").append(NL).append("ixor").append(NL);
+            code.add(JasminInstruction.constant(1));
+            code.add(Opcode.IXOR);
         }
-        return code.toString();
     }
 }
@@ -0,0 +1,23 @@
+package pt.up.fe.comp2024.backend;
+
+/**
+ * A position in the code of a method, which branches jump to. Labels are compared by identity, {@link JasminCode}
+ * gives the same instance to every use of a name.
+ */
+public class JasminLabel {
+
+    private final String name;
+
+    JasminLabel(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -2,20 +2,17 @@ package pt.up.fe.comp2024.backend;
 
 import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
-import pt.up.fe.specs.util.classmap.FunctionClassMap;
+import pt.up.fe.specs.util.classmap.BiConsumerClassMap;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
 import static pt.up.fe.comp2024.backend.JasminUtils.*;
 
 public class JasminOperandGenerator {
-    private final OllirResult ollirResult;
-    private final FunctionClassMap<TreeNode, String> operandGenerator;
+    private final BiConsumerClassMap<TreeNode, JasminCode> operandGenerator;
     private Method currentMethod;
-    private final JasminInstructionGenerator instructionGenerator;
 
-    public JasminOperandGenerator(OllirResult ollirResult, JasminInstructionGenerator instructionGenerator) {
-        this.ollirResult = ollirResult;
-        this.instructionGenerator = instructionGenerator;
-        this.operandGenerator = new FunctionClassMap<>();
+    public JasminOperandGenerator() {
+        this.operandGenerator = new BiConsumerClassMap<>();
         operandGenerator.put(LiteralElement.class, this::generateLiteral);
         operandGenerator.put(Operand.class, this::generateOperand);
     }
@@ -24,70 +21,44 @@ public class JasminOperandGenerator {
         this.currentMethod = currentMethod;
     }
 
-    public String generate(TreeNode operand) {
-        return operandGenerator.apply(operand);
+    /**
+     * Appends the instructions that push the value of the operand.
+     */
+    public void generate(TreeNode operand, JasminCode code) {
+        operandGenerator.accept(operand, code);
     }
 
-    private String generateLiteral(LiteralElement literal) {
-        StringBuilder code = new StringBuilder();
-        var literalString = literal.getLiteral();
-
-        instructionGenerator.pushToStack();
-        if (literal.getType().getTypeOfElement().name().equals("STRING")) {
-            code.append(literalString.replaceAll("\"", "")).append("(");
-            return code.toString();
-        }
-
-        int value = Integer.parseInt(literalString);
-        if (value > -2 && value < 6) return "iconst_" + value + NL;
-        else if (value > -129 && value < 128) return "bipush " + value + NL;
-        else if (value >= -32768 && value <= 32767) return "sipush " + value + NL;
-        else return "ldc " + value + NL;
+    private void generateLiteral(LiteralElement literal, JasminCode code) {
+        code.add(JasminInstruction.constant(Integer.parseInt(literal.getLiteral())));
     }
 
-    private String generateOperand(Operand operand) {
-
-        instructionGenerator.pushToStack();
+    private void generateOperand(Operand operand, JasminCode code) {
 
-        if (operand instanceof ArrayOperand) return generateArrayOperand((ArrayOperand) operand);
+        if (operand instanceof ArrayOperand) {
+            generateArrayOperand((ArrayOperand) operand, code);
+            return;
+        }
 
         String operandName = operand.getName();
-        if (currentMethod.getVarTable().containsKey(operandName)) {
-            int reg = currentMethod.getVarTable().get(operandName).getVirtualReg();
-            String type = operand.getType().getTypeOfElement().name();
-            if (type.equals("INT32") || type.equals("BOOLEAN")) {
-                if (reg > 3) return "iload " + reg + NL;
-                return "iload_" + reg + NL;
-            } else {
-                if (reg > 3) return "aload " + reg + NL;
-                return "aload_" + reg + NL;
-            }
+        if (!currentMethod.getVarTable().containsKey(operandName)) {
+            throw new NotImplementedException("Operand that is not a variable: " + operandName);
         }
-        if (currentMethod.getOllirClass().getImports().contains(operandName)) return operandName;
-        String fullClass = "." + operandName;
 
-        if (ollirResult.getOllirClass().getImportedClasseNames().contains(operandName)){
-            for (var imp: ollirResult.getOllirClass().getImports()) {
-                if (imp.endsWith(fullClass)) return operandName;
-            }
-        }
-        return null;
+        int reg = currentMethod.getVarTable().get(operandName).getVirtualReg();
+        String type = operand.getType().getTypeOfElement().name();
+        if (type.equals("INT32") || type.equals("BOOLEAN")) code.add(Opcode.ILOAD, reg);
+        else code.add(Opcode.ALOAD, reg);
     }
 
-    private String generateArrayOperand(ArrayOperand arrayOperand) {
-
-        StringBuilder code = new StringBuilder();
+    private void generateArrayOperand(ArrayOperand arrayOperand, JasminCode code) {
 
         String arrayName = arrayOperand.getName();
         var index = arrayOperand.getIndexOperands().get(0);
         int reg = getVariableRegister(currentMethod, arrayName);
 
-        if (reg > 3) code.append("aload ").append(reg).append(NL);
-        else code.append("aload_").append(reg).append(NL);
-
-        code.append(generate(index)).append(NL);
-        code.append("iaload").append(NL);
-        return code.toString();
+        code.add(Opcode.ALOAD, reg);
+        generate(index, code);
+        code.add(Opcode.IALOAD);
     }
 
 }
@@ -0,0 +1,229 @@
+package pt.up.fe.comp2024.backend;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces short sequences of instructions of a method with shorter ones that do the same, until no rule applies.
+ * <p>
+ * A rule only looks at instructions next to each other. Labels are kept in the instruction list, so two instructions
+ * with a label between them are never rewritten together, as other code may jump to the second one.
+ */
+public class JasminPeephole {
+
+    public enum Rule {
+        /**
+         * {@code istore n; iload n} keeps the value on the stack: the store is kept only if n is read elsewhere.
+         */
+        STORE_LOAD,
+        /**
+         * {@code goto L} right before {@code L:}.
+         */
+        GOTO_NEXT,
+        /**
+         * Code after a {@code goto} or a return that no label leads to.
+         */
+        UNREACHABLE,
+        /**
+         * A branch on a constant either always jumps, becoming a {@code goto}, or never does.
+         */
+        CONSTANT_BRANCH,
+        /**
+         * {@code isub; ifeq L} compares the two values, which {@code if_icmpeq L} does directly. Only equality is
+         * rewritten: the sign of the difference is not the order of the values when the subtraction overflows (e.g.
+         * {@code MIN_VALUE - 1} is positive), so {@code iflt}, {@code ifge}, ... are left alone.
+         */
+        COMPARE_BRANCH,
+        /**
+         * A value pushed without side effects and then popped.
+         */
+        PUSH_POP
+    }
+
+    private final Map<Rule, Integer> hits = new EnumMap<>(Rule.class);
+
+    // the number of instructions that read each register, to know if a store can go
+    private int[] reads;
+
+    public void optimize(JasminCode code) {
+        List<JasminInstruction> instructions = code.getInstructions();
+        countReads(instructions);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < instructions.size(); i++) {
+                changed |= storeLoad(instructions, i)
+                        || gotoNext(instructions, i)
+                        || unreachable(instructions, i)
+                        || constantBranch(instructions, i)
+                        || compareBranch(instructions, i)
+                        || pushPop(instructions, i);
+            }
+        }
+    }
+
+    public int getHits(Rule rule) {
+        return hits.getOrDefault(rule, 0);
+    }
+
+    public int getTotalHits() {
+        return hits.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private void hit(Rule rule) {
+        hits.merge(rule, 1, Integer::sum);
+    }
+
+    private boolean storeLoad(List<JasminInstruction> instructions, int i) {
+        if (i + 1 >= instructions.size()) return false;
+        var store = instructions.get(i);
+        var load = instructions.get(i + 1);
+
+        boolean matches = (store.getOpcode() == Opcode.ISTORE && load.getOpcode() == Opcode.ILOAD)
+                || (store.getOpcode() == Opcode.ASTORE && load.getOpcode() == Opcode.ALOAD);
+        if (!matches || store.getValue() != load.getValue()) return false;
+
+        int register = store.getValue();
+        if (reads[register] == 1) {
+            remove(instructions, i, 2);
+        } else if (register > 3) {
+            // dup and a short store take as many bytes as the short store and load, only worth it for the long ones
+            instructions.set(i, JasminInstruction.of(Opcode.DUP));
+            instructions.set(i + 1, store);
+            reads[register]--;
+        } else {
+            return false;
+        }
+
+        hit(Rule.STORE_LOAD);
+        return true;
+    }
+
+    private boolean gotoNext(List<JasminInstruction> instructions, int i) {
+        if (instructions.get(i).getOpcode() != Opcode.GOTO) return false;
+
+        var target = instructions.get(i).getLabel();
+        for (int j = i + 1; j < instructions.size() && instructions.get(j).getOpcode() == Opcode.LABEL; j++) {
+            if (instructions.get(j).getLabel() == target) {
+                remove(instructions, i, 1);
+                hit(Rule.GOTO_NEXT);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean unreachable(List<JasminInstruction> instructions, int i) {
+        if (!instructions.get(i).getOpcode().endsBlock()) return false;
+
+        int end = i + 1;
+        while (end < instructions.size() && instructions.get(end).getOpcode() != Opcode.LABEL) {
+            end++;
+        }
+        if (end == i + 1) return false;
+
+        remove(instructions, i + 1, end - i - 1);
+        hit(Rule.UNREACHABLE);
+        return true;
+    }
+
+    private boolean constantBranch(List<JasminInstruction> instructions, int i) {
+        if (i + 1 >= instructions.size()) return false;
+        var constant = instructions.get(i);
+        var branch = instructions.get(i + 1);
+
+        if (!isConstant(constant.getOpcode())) return false;
+
+        int value = constant.getValue();
+        boolean jumps;
+        switch (branch.getOpcode()) {
+            case IFEQ -> jumps = value == 0;
+            case IFNE -> jumps = value != 0;
+            case IFLT -> jumps = value < 0;
+            case IFGE -> jumps = value >= 0;
+            case IFGT -> jumps = value > 0;
+            case IFLE -> jumps = value <= 0;
+            default -> {
+                return false;
+            }
+        }
+
+        if (jumps) {
+            instructions.set(i, JasminInstruction.of(Opcode.GOTO, branch.getLabel()));
+            remove(instructions, i + 1, 1);
+        } else {
+            remove(instructions, i, 2);
+        }
+
+        hit(Rule.CONSTANT_BRANCH);
+        return true;
+    }
+
+    private boolean compareBranch(List<JasminInstruction> instructions, int i) {
+        if (i + 1 >= instructions.size() || instructions.get(i).getOpcode() != Opcode.ISUB) return false;
+        var branch = instructions.get(i + 1);
+
+        Opcode compare = switch (branch.getOpcode()) {
+            case IFEQ -> Opcode.IF_ICMPEQ;
+            case IFNE -> Opcode.IF_ICMPNE;
+            default -> null;
+        };
+        if (compare == null) return false;
+
+        instructions.set(i, JasminInstruction.of(compare, branch.getLabel()));
+        remove(instructions, i + 1, 1);
+        hit(Rule.COMPARE_BRANCH);
+        return true;
+    }
+
+    private boolean pushPop(List<JasminInstruction> instructions, int i) {
+        if (i + 1 >= instructions.size() || instructions.get(i + 1).getOpcode() != Opcode.POP) return false;
+
+        var opcode = instructions.get(i).getOpcode();
+        if (!isConstant(opcode) && opcode != Opcode.ILOAD && opcode != Opcode.ALOAD && opcode != Opcode.DUP) {
+            return false;
+        }
+
+        remove(instructions, i, 2);
+        hit(Rule.PUSH_POP);
+        return true;
+    }
+
+    private static boolean isConstant(Opcode opcode) {
+        return opcode == Opcode.ICONST || opcode == Opcode.BIPUSH || opcode == Opcode.SIPUSH || opcode == Opcode.LDC;
+    }
+
+    private static boolean isRead(JasminInstruction instruction) {
+        var opcode = instruction.getOpcode();
+        return opcode == Opcode.ILOAD || opcode == Opcode.ALOAD || opcode == Opcode.IINC;
+    }
+
+    private void countReads(List<JasminInstruction> instructions) {
+        int registers = 0;
+        for (var instruction : instructions) {
+            var opcode = instruction.getOpcode();
+            if (isRead(instruction) || opcode == Opcode.ISTORE || opcode == Opcode.ASTORE) {
+                registers = Math.max(registers, instruction.getValue() + 1);
+            }
+        }
+
+        reads = new int[registers];
+        for (var instruction : instructions) {
+            if (isRead(instruction)) {
+                reads[instruction.getValue()]++;
+            }
+        }
+    }
+
+    private void remove(List<JasminInstruction> instructions, int from, int count) {
+        var removed = instructions.subList(from, from + count);
+        for (var instruction : removed) {
+            if (isRead(instruction)) {
+                reads[instruction.getValue()]--;
+            }
+        }
+        removed.clear();
+    }
+}
@@ -0,0 +1,82 @@
+package pt.up.fe.comp2024.backend;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the maximum depth of the operand stack of the code of a method, for its {@code .limit stack}.
+ * <p>
+ * The depth before each instruction is propagated from the first one along every branch, using the number of values
+ * each instruction pops and pushes. The JVM requires the depth to be the same on every path that reaches an
+ * instruction, which is checked on the way: a mismatch or popping more values than there are means the generated
+ * code is wrong.
+ */
+public class JasminStackAnalysis {
+
+    private JasminStackAnalysis() {
+    }
+
+    /**
+     * @return the maximum number of values on the operand stack while the code runs
+     */
+    public static int maxStack(JasminCode code) {
+        List<JasminInstruction> instructions = code.getInstructions();
+
+        Map<JasminLabel, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < instructions.size(); i++) {
+            if (instructions.get(i).getOpcode() == Opcode.LABEL) {
+                positions.put(instructions.get(i).getLabel(), i);
+            }
+        }
+
+        int[] depths = new int[instructions.size()];
+        Arrays.fill(depths, -1);
+
+        var worklist = new ArrayDeque<Integer>();
+        int max = 0;
+        if (!instructions.isEmpty()) {
+            depths[0] = 0;
+            worklist.push(0);
+        }
+
+        while (!worklist.isEmpty()) {
+            int i = worklist.pop();
+            JasminInstruction instruction = instructions.get(i);
+
+            int popped = depths[i] - instruction.getPops();
+            if (popped < 0) {
+                throw new IllegalStateException("Stack underflow at '" + instruction + "'");
+            }
+            int depth = popped + instruction.getPushes();
+            max = Math.max(max, depth);
+
+            if (instruction.getOpcode().isBranch()) {
+                Integer target = positions.get(instruction.getLabel());
+                if (target == null) {
+                    throw new IllegalStateException("Label of '" + instruction + "' is not placed");
+                }
+                propagate(instructions, target, depth, depths, worklist);
+            }
+
+            if (!instruction.getOpcode().endsBlock() && i + 1 < instructions.size()) {
+                propagate(instructions, i + 1, depth, depths, worklist);
+            }
+        }
+
+        return max;
+    }
+
+    private static void propagate(List<JasminInstruction> instructions, int instruction, int depth, int[] depths,
+                                  ArrayDeque<Integer> worklist) {
+        if (depths[instruction] == -1) {
+            depths[instruction] = depth;
+            worklist.push(instruction);
+        } else if (depths[instruction] != depth) {
+            throw new IllegalStateException("Stack depth " + depth + " and " + depths[instruction] + " reach '"
+                    + instructions.get(instruction) + "'");
+        }
+    }
+}
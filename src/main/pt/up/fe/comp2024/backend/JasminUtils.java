@@ -4,25 +4,53 @@ import org.specs.comp.ollir.*;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Helpers for the Jasmin generation.
+ * <p>
+ * Methods that depend on the class being generated (e.g. resolving imported class names) are instance methods,
+ * so there is one instance per generated class and generators for different classes do not share state.
+ */
 public class JasminUtils {
 
     public static final String NL = "\n";
     public static final String TAB = "   ";
 
-    private static int tempNumber = -1;
+    private final OllirResult ollirResult;
 
-    private static OllirResult ollirResult;
+    private int tempNumber = -1;
 
-    public static void setOllirResult(OllirResult ollirResult) {
-        JasminUtils.ollirResult = ollirResult;
+    private final Map<String, String> importedClassNames;
+
+    // the methods of the class by name and their descriptors, built the first time one is needed
+    private Map<String, Method> methods;
+    private Map<String, String> descriptors;
+
+    public JasminUtils(OllirResult ollirResult) {
+        this.ollirResult = ollirResult;
+        this.importedClassNames = new HashMap<>();
     }
 
-    public static int getTemp() {
+    /**
+     * Labels only have to be unique inside a method, restarting them makes the code of a method independent of the
+     * methods generated before it.
+     */
+    public void resetTemp() {
+        tempNumber = -1;
+    }
+
+    public int getTemp() {
         tempNumber += 1;
         return tempNumber;
     }
 
-    public static String getImportedClassName(String basicClassName) {
+    public String getImportedClassName(String basicClassName) {
+        return importedClassNames.computeIfAbsent(basicClassName, this::findImportedClassName);
+    }
+
+    private String findImportedClassName(String basicClassName) {
 
         if (basicClassName.equals("this")) {
             return ollirResult.getOllirClass().getClassName();
@@ -39,7 +67,45 @@ public class JasminUtils {
         return basicClassName;
     }
 
-    public static String ollirTypeToJasmin(Type type) {
+    /**
+     * @return the method of the class with the given name, or null if there is none; constructors are left out
+     */
+    public Method getClassMethod(String methodName) {
+        if (methods == null) buildDescriptors();
+        return methods.get(methodName);
+    }
+
+    /**
+     * @return the types of the parameters and the return type of a method of the class, e.g. "([I)V"
+     */
+    public String getDescriptor(Method method) {
+        if (methods == null) buildDescriptors();
+
+        String methodName = method.getMethodName();
+        return methods.get(methodName) == method ? descriptors.get(methodName) : buildDescriptor(method);
+    }
+
+    private void buildDescriptors() {
+        methods = new HashMap<>();
+        descriptors = new HashMap<>();
+
+        for (var method : ollirResult.getOllirClass().getMethods()) {
+            if (method.isConstructMethod()) continue;
+            if (methods.putIfAbsent(method.getMethodName(), method) == null) {
+                descriptors.put(method.getMethodName(), buildDescriptor(method));
+            }
+        }
+    }
+
+    private String buildDescriptor(Method method) {
+        var descriptor = new StringBuilder("(");
+        for (var parameter : method.getParams()) {
+            descriptor.append(ollirTypeToJasmin(parameter.getType()));
+        }
+        return descriptor.append(")").append(ollirTypeToJasmin(method.getReturnType())).toString();
+    }
+
+    public String ollirTypeToJasmin(Type type) {
         if (type instanceof ArrayType arrayType) {
             ElementType elementType = arrayType.getElementType().getTypeOfElement();
             return switch (elementType) {
@@ -59,28 +125,28 @@ public class JasminUtils {
         };
     }
 
-    public static String getBinaryOp(OperationType type) {
+    public static Opcode getBinaryOp(OperationType type) {
         return switch (type) {
-            case ADD -> "iadd";
-            case MUL -> "imul";
-            case SUB -> "isub";
-            case DIV -> "idiv";
-            case AND -> "iand";
-            case OR -> "ior";
-            case LTH -> "iflt";
-            case GTE -> "ifge";
-            case LTE -> "ifle";
-            case GTH -> "ifgt";
+            case ADD -> Opcode.IADD;
+            case MUL -> Opcode.IMUL;
+            case SUB -> Opcode.ISUB;
+            case DIV -> Opcode.IDIV;
+            case AND, ANDB -> Opcode.IAND;
+            case OR -> Opcode.IOR;
+            case LTH -> Opcode.IFLT;
+            case GTE -> Opcode.IFGE;
+            case LTE -> Opcode.IFLE;
+            case GTH -> Opcode.IFGT;
             default -> throw new NotImplementedException(type);
         };
     }
 
-    public static String getReturnType(ElementType type) {
+    public static Opcode getReturnType(ElementType type) {
         return switch (type) {
-            case INT32, BOOLEAN -> "ireturn";
-            case VOID -> "return";
-            case OBJECTREF, CLASS, ARRAYREF -> "areturn";
-            default -> "";
+            case INT32, BOOLEAN -> Opcode.IRETURN;
+            case VOID -> Opcode.RETURN;
+            case OBJECTREF, CLASS, ARRAYREF -> Opcode.ARETURN;
+            default -> throw new NotImplementedException(type);
         };
     }
 
@@ -102,7 +168,7 @@ public class JasminUtils {
         return className.replace(".", "/");
     }
 
-    private static String getObjectType (Type type){
+    private String getObjectType (Type type){
         return "L" + getImportedClassName(((ClassType) type).getName()) + ";";
     }
 
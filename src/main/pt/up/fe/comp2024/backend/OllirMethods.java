@@ -0,0 +1,117 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.specs.util.utilities.StringLines;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The OLLIR code of a class split by method, used to find the code each method of the class was built from.
+ * <p>
+ * Everything that is not inside a method (imports, class declaration, fields, constructors) is kept as the header.
+ */
+class OllirMethods {
+
+    private static final String METHOD = ".method ";
+    private static final String CONSTRUCTOR = ".construct ";
+
+    private final StringBuilder header;
+    private final Map<String, String> methods;
+    private final Set<String> ambiguous;
+
+    private OllirMethods() {
+        this.header = new StringBuilder();
+        this.methods = new HashMap<>();
+        this.ambiguous = new HashSet<>();
+    }
+
+    public static OllirMethods split(String ollirCode) {
+        var ollirMethods = new OllirMethods();
+
+        StringBuilder currentMethod = null;
+        String currentName = null;
+        int depth = 0;
+
+        for (String line : StringLines.getLines(ollirCode)) {
+            String trimmed = line.strip();
+
+            if (currentMethod == null && (trimmed.startsWith(METHOD) || trimmed.startsWith(CONSTRUCTOR))) {
+                currentMethod = new StringBuilder();
+                currentName = trimmed.startsWith(METHOD) ? getMethodName(trimmed) : null;
+                depth = 0;
+            }
+
+            if (currentMethod == null) {
+                ollirMethods.header.append(line).append(JasminUtils.NL);
+                continue;
+            }
+
+            currentMethod.append(line).append(JasminUtils.NL);
+            depth += countBraces(line);
+
+            if (depth <= 0 && trimmed.contains("}")) {
+                if (currentName != null) {
+                    ollirMethods.add(currentName, currentMethod.toString());
+                } else {
+                    ollirMethods.header.append(currentMethod);
+                }
+                currentMethod = null;
+            }
+        }
+
+        return ollirMethods;
+    }
+
+    public String getHeader() {
+        return header.toString();
+    }
+
+    /**
+     * @return true if the code of the method was found, and only one method has that name
+     */
+    public boolean contains(String methodName) {
+        return methods.containsKey(methodName) && !ambiguous.contains(methodName);
+    }
+
+    public String get(String methodName) {
+        return methods.get(methodName);
+    }
+
+    private void add(String methodName, String code) {
+        if (methods.put(methodName, code) != null) {
+            ambiguous.add(methodName);
+        }
+    }
+
+    private static String getMethodName(String declaration) {
+        int paramsStart = declaration.indexOf('(');
+        if (paramsStart < 0) {
+            return null;
+        }
+
+        String beforeParams = declaration.substring(0, paramsStart).strip();
+        return beforeParams.substring(beforeParams.lastIndexOf(' ') + 1);
+    }
+
+    /**
+     * @return the number of opening braces minus the number of closing braces, ignoring string literals
+     */
+    private static int countBraces(String line) {
+        int count = 0;
+        boolean inString = false;
+
+        for (char c : line.toCharArray()) {
+            if (c == '"') {
+                inString = !inString;
+            } else if (!inString && c == '{') {
+                count++;
+            } else if (!inString && c == '}') {
+                count--;
+            }
+        }
+
+        return count;
+    }
+}
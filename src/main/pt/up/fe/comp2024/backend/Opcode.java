@@ -0,0 +1,109 @@
+package pt.up.fe.comp2024.backend;
+
+/**
+ * The JVM instructions the backend generates, with their opcode and the number of values each one pops from and
+ * pushes to the operand stack. Invocations and field accesses depend on their descriptor, see
+ * {@link JasminInstruction#getPops()}.
+ * <p>
+ * Loads, stores and {@link #ICONST} have shorter forms for some operands, see {@link ClassFileWriter}. The opcode of
+ * {@link #ICONST} is the one of {@code iconst_0}.
+ * <p>
+ * {@link #LABEL} is not an instruction, it marks the position of a label in the code.
+ */
+public enum Opcode {
+    ILOAD(0x15, 0, 1),
+    ALOAD(0x19, 0, 1),
+    ISTORE(0x36, 1, 0),
+    ASTORE(0x3a, 1, 0),
+    IINC(0x84, 0, 0),
+
+    ICONST(0x03, 0, 1),
+    BIPUSH(0x10, 0, 1),
+    SIPUSH(0x11, 0, 1),
+    LDC(0x12, 0, 1),
+
+    IALOAD(0x2e, 2, 1),
+    IASTORE(0x4f, 3, 0),
+    NEWARRAY(0xbc, 1, 1),
+    ARRAYLENGTH(0xbe, 1, 1),
+
+    IADD(0x60, 2, 1),
+    ISUB(0x64, 2, 1),
+    IMUL(0x68, 2, 1),
+    IDIV(0x6c, 2, 1),
+    IAND(0x7e, 2, 1),
+    IOR(0x80, 2, 1),
+    IXOR(0x82, 2, 1),
+
+    IFEQ(0x99, 1, 0),
+    IFNE(0x9a, 1, 0),
+    IFLT(0x9b, 1, 0),
+    IFGE(0x9c, 1, 0),
+    IFGT(0x9d, 1, 0),
+    IFLE(0x9e, 1, 0),
+    IF_ICMPEQ(0x9f, 2, 0),
+    IF_ICMPNE(0xa0, 2, 0),
+    IF_ICMPLT(0xa1, 2, 0),
+    IF_ICMPGE(0xa2, 2, 0),
+    IF_ICMPGT(0xa3, 2, 0),
+    IF_ICMPLE(0xa4, 2, 0),
+    GOTO(0xa7, 0, 0),
+
+    NEW(0xbb, 0, 1),
+    DUP(0x59, 1, 2),
+    POP(0x57, 1, 0),
+
+    INVOKESTATIC(0xb8, 0, 0),
+    INVOKEVIRTUAL(0xb6, 0, 0),
+    INVOKESPECIAL(0xb7, 0, 0),
+    GETFIELD(0xb4, 0, 0),
+    PUTFIELD(0xb5, 0, 0),
+
+    IRETURN(0xac, 1, 0),
+    ARETURN(0xb0, 1, 0),
+    RETURN(0xb1, 0, 0),
+
+    LABEL(-1, 0, 0);
+
+    private final String mnemonic;
+    private final int code;
+    private final int pops;
+    private final int pushes;
+
+    Opcode(int code, int pops, int pushes) {
+        this.mnemonic = name().toLowerCase();
+        this.code = code;
+        this.pops = pops;
+        this.pushes = pushes;
+    }
+
+    public String getMnemonic() {
+        return mnemonic;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public int getPops() {
+        return pops;
+    }
+
+    public int getPushes() {
+        return pushes;
+    }
+
+    /**
+     * @return true if the instruction may jump to a label
+     */
+    public boolean isBranch() {
+        return this == GOTO || name().startsWith("IF");
+    }
+
+    /**
+     * @return true if the instruction after this one is never the next to run
+     */
+    public boolean endsBlock() {
+        return this == GOTO || this == IRETURN || this == ARETURN || this == RETURN;
+    }
+}
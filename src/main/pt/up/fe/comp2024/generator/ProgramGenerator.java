@@ -0,0 +1,288 @@
+package pt.up.fe.comp2024.generator;
+
+import java.util.Random;
+
+/**
+ * Generates valid Java-- programs of a configurable size, to see how each stage of the compiler scales.
+ * <p>
+ * The size is controlled by the number of methods, the number of statements of each method, how deep 'if' and
+ * 'while' statements are nested, how deep expressions are, how many locals each method declares and how many calls
+ * to a varargs method each method makes. Programs are deterministic for a given seed.
+ * <p>
+ * Generated programs always terminate and never throw: loops use their own counters with small bounds, array
+ * indices are always in range and divisions are only by non-zero literals. The main method calls every generated
+ * method and prints its result, so the output of a program can be compared across compiler options.
+ */
+public class ProgramGenerator {
+
+    private static final String INDENT = "    ";
+    private static final int ARRAY_SIZE = 8;
+    private static final int MAX_LOOP_ITERATIONS = 3;
+    private static final int MAX_BLOCK_SIZE = 3;
+    private static final int MAX_VARARGS = 4;
+
+    private int methods;
+    private int statements;
+    private int nestingDepth;
+    private int expressionDepth;
+    private int locals;
+    private int varargsCalls;
+
+    private final Random random;
+    private final StringBuilder code;
+
+    // state of the method being generated
+    private int intLocals;
+    private int booleanLocals;
+    private int remainingStatements;
+    private int remainingVarargsCalls;
+
+    public ProgramGenerator(long seed) {
+        this.methods = 10;
+        this.statements = 20;
+        this.nestingDepth = 2;
+        this.expressionDepth = 3;
+        this.locals = 6;
+        this.varargsCalls = 2;
+        this.random = new Random(seed);
+        this.code = new StringBuilder();
+    }
+
+    public ProgramGenerator methods(int methods) {
+        this.methods = Math.max(methods, 1);
+        return this;
+    }
+
+    /**
+     * @param statements statements of each method, counting the ones nested inside 'if' and 'while' statements
+     */
+    public ProgramGenerator statements(int statements) {
+        this.statements = Math.max(statements, 0);
+        return this;
+    }
+
+    public ProgramGenerator nestingDepth(int nestingDepth) {
+        this.nestingDepth = Math.max(nestingDepth, 0);
+        return this;
+    }
+
+    public ProgramGenerator expressionDepth(int expressionDepth) {
+        this.expressionDepth = Math.max(expressionDepth, 0);
+        return this;
+    }
+
+    /**
+     * @param locals int and boolean locals of each method, besides its array and loop counters
+     */
+    public ProgramGenerator locals(int locals) {
+        this.locals = Math.max(locals, 1);
+        return this;
+    }
+
+    public ProgramGenerator varargsCalls(int varargsCalls) {
+        this.varargsCalls = Math.max(varargsCalls, 0);
+        return this;
+    }
+
+    public String generate(String className) {
+        code.setLength(0);
+
+        code.append("import io;\n\n");
+        code.append("class ").append(className).append(" {\n\n");
+        code.append(INDENT).append("int acc;\n\n");
+
+        generateVarargsMethod();
+        for (int i = 0; i < methods; i++) {
+            generateMethod(i);
+        }
+        generateMain(className);
+
+        code.append("}\n");
+
+        return code.toString();
+    }
+
+    private void generateVarargsMethod() {
+        code.append(INDENT).append("public int sum(int... values) {\n");
+        line(2, "int i;");
+        line(2, "int total;");
+        line(2, "i = 0;");
+        line(2, "total = 0;");
+        line(2, "while (i < values.length) {");
+        line(3, "total = total + values[i];");
+        line(3, "i = i + 1;");
+        line(2, "}");
+        line(2, "return total;");
+        code.append(INDENT).append("}\n\n");
+    }
+
+    private void generateMethod(int index) {
+        // a quarter of the locals are booleans, always at least one int local
+        booleanLocals = locals / 4;
+        intLocals = locals - booleanLocals;
+        remainingStatements = statements;
+        remainingVarargsCalls = varargsCalls;
+
+        code.append(INDENT).append("public int m").append(index).append("(int a, boolean flag) {\n");
+
+        // declarations
+        for (int i = 0; i < intLocals; i++) {
+            line(2, "int x" + i + ";");
+        }
+        for (int i = 0; i < booleanLocals; i++) {
+            line(2, "boolean b" + i + ";");
+        }
+        line(2, "int[] arr;");
+        for (int i = 0; i < nestingDepth; i++) {
+            line(2, "int i" + i + ";");
+        }
+
+        // every local is initialized, otherwise the generated class would not pass the bytecode verifier
+        for (int i = 0; i < intLocals; i++) {
+            line(2, "x" + i + " = " + (i == 0 ? "a" : String.valueOf(random.nextInt(100))) + ";");
+        }
+        for (int i = 0; i < booleanLocals; i++) {
+            line(2, "b" + i + " = " + (i == 0 ? "flag" : String.valueOf(random.nextBoolean())) + ";");
+        }
+        line(2, "arr = new int[" + ARRAY_SIZE + "];");
+        for (int i = 0; i < nestingDepth; i++) {
+            line(2, "i" + i + " = 0;");
+        }
+
+        while (remainingStatements > 0) {
+            statement(2);
+        }
+        while (remainingVarargsCalls > 0) {
+            varargsCall(2);
+        }
+
+        line(2, "return " + intExpr(expressionDepth) + ";");
+        code.append(INDENT).append("}\n\n");
+    }
+
+    private void generateMain(String className) {
+        code.append(INDENT).append("public static void main(String[] args) {\n");
+        line(2, className + " program;");
+        line(2, "program = new " + className + "();");
+        for (int i = 0; i < methods; i++) {
+            line(2, "io.println(program.m" + i + "(" + random.nextInt(100) + ", " + random.nextBoolean() + "));");
+        }
+        code.append(INDENT).append("}\n");
+    }
+
+    private void statement(int indent) {
+        remainingStatements--;
+
+        if (remainingVarargsCalls > 0 && random.nextInt(4) == 0) {
+            varargsCall(indent);
+            return;
+        }
+
+        boolean canNest = indent - 2 < nestingDepth && remainingStatements > 0;
+        int choice = random.nextInt(canNest ? 7 : 5);
+        switch (choice) {
+            case 0, 1 -> line(indent, intLocal() + " = " + intExpr(expressionDepth) + ";");
+            case 2 -> line(indent, "arr[" + index() + "] = " + intExpr(expressionDepth) + ";");
+            case 3 -> line(indent, booleanLocals > 0
+                    ? "b" + random.nextInt(booleanLocals) + " = " + booleanExpr(expressionDepth) + ";"
+                    : "acc = acc + " + intExpr(expressionDepth) + ";");
+            case 4 -> line(indent, "acc = " + intExpr(expressionDepth) + ";");
+            case 5 -> ifStatement(indent);
+            default -> whileStatement(indent);
+        }
+    }
+
+    private void ifStatement(int indent) {
+        line(indent, "if (" + booleanExpr(expressionDepth) + ") {");
+        block(indent + 1);
+        line(indent, "} else {");
+        block(indent + 1);
+        line(indent, "}");
+    }
+
+    private void whileStatement(int indent) {
+        // each nesting level has its own counter, so inner loops never change the outer ones
+        String counter = "i" + (indent - 2);
+        line(indent, counter + " = 0;");
+        line(indent, "while (" + counter + " < " + (1 + random.nextInt(MAX_LOOP_ITERATIONS)) + ") {");
+        block(indent + 1);
+        line(indent + 1, counter + " = " + counter + " + 1;");
+        line(indent, "}");
+    }
+
+    private void block(int indent) {
+        int size = 1 + random.nextInt(MAX_BLOCK_SIZE);
+        for (int i = 0; i < size && remainingStatements > 0; i++) {
+            statement(indent);
+        }
+    }
+
+    private void varargsCall(int indent) {
+        remainingVarargsCalls--;
+
+        var args = new StringBuilder();
+        int count = random.nextInt(MAX_VARARGS + 1);
+        for (int i = 0; i < count; i++) {
+            args.append(i == 0 ? "" : ", ").append(intExpr(1));
+        }
+
+        line(indent, intLocal() + " = this.sum(" + args + ");");
+    }
+
+    private String intExpr(int depth) {
+        if (depth == 0) {
+            return switch (random.nextInt(4)) {
+                case 0 -> String.valueOf(random.nextInt(100));
+                case 1 -> "a";
+                default -> intLocal();
+            };
+        }
+
+        return switch (random.nextInt(8)) {
+            case 0, 1 -> "(" + intExpr(depth - 1) + " + " + intExpr(depth - 1) + ")";
+            case 2 -> "(" + intExpr(depth - 1) + " - " + intExpr(depth - 1) + ")";
+            case 3 -> "(" + intExpr(depth - 1) + " * " + intExpr(depth - 1) + ")";
+            case 4 -> "(" + intExpr(depth - 1) + " / " + (1 + random.nextInt(9)) + ")";
+            case 5 -> "arr[" + index() + "]";
+            case 6 -> random.nextBoolean() ? "arr.length" : "acc";
+            default -> intExpr(0);
+        };
+    }
+
+    private String booleanExpr(int depth) {
+        if (depth == 0) {
+            return switch (random.nextInt(4)) {
+                case 0 -> String.valueOf(random.nextBoolean());
+                case 1 -> "flag";
+                default -> booleanLocals > 0 ? "b" + random.nextInt(booleanLocals) : "flag";
+            };
+        }
+
+        return switch (random.nextInt(5)) {
+            case 0, 1 -> "(" + intExpr(depth - 1) + " < " + intExpr(depth - 1) + ")";
+            case 2 -> "(" + booleanExpr(depth - 1) + " && " + booleanExpr(depth - 1) + ")";
+            case 3 -> "!(" + booleanExpr(depth - 1) + ")";
+            default -> booleanExpr(0);
+        };
+    }
+
+    /**
+     * @return an index that is always inside the bounds of 'arr'
+     */
+    private String index() {
+        // loop counters never reach the size of the array
+        if (nestingDepth > 0 && random.nextBoolean()) {
+            return "i" + random.nextInt(nestingDepth);
+        }
+
+        return String.valueOf(random.nextInt(ARRAY_SIZE));
+    }
+
+    private String intLocal() {
+        return "x" + random.nextInt(intLocals);
+    }
+
+    private void line(int indent, String text) {
+        code.append(INDENT.repeat(indent)).append(text).append("\n");
+    }
+}
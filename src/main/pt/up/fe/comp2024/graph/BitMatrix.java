@@ -0,0 +1,45 @@
+package pt.up.fe.comp2024.graph;
+
+/**
+ * A symmetric relation over the ints 0 to size - 1, without the diagonal.
+ * <p>
+ * Only the lower triangle is stored, one bit per pair, so a relation over n elements takes n * (n - 1) / 2 bits.
+ */
+public class BitMatrix {
+
+    private static final int WORD_BITS = 64;
+
+    private final long[] bits;
+
+    public BitMatrix(int size) {
+        long pairs = (long) size * (size - 1) / 2;
+        this.bits = new long[(int) ((pairs + WORD_BITS - 1) / WORD_BITS)];
+    }
+
+    /**
+     * @return true if the pair was not in the relation yet
+     */
+    public boolean add(int first, int second) {
+        long index = index(first, second);
+        int word = (int) (index / WORD_BITS);
+        long mask = 1L << (index % WORD_BITS);
+
+        if ((bits[word] & mask) != 0) {
+            return false;
+        }
+
+        bits[word] |= mask;
+        return true;
+    }
+
+    public boolean contains(int first, int second) {
+        long index = index(first, second);
+        return (bits[(int) (index / WORD_BITS)] & (1L << (index % WORD_BITS))) != 0;
+    }
+
+    private static long index(int first, int second) {
+        int row = Math.max(first, second);
+        int column = Math.min(first, second);
+        return (long) row * (row - 1) / 2 + column;
+    }
+}
@@ -1,164 +1,550 @@
 package pt.up.fe.comp2024.graph;
 
-import org.specs.comp.ollir.Descriptor;
-import org.specs.comp.ollir.VarScope;
+import org.specs.comp.ollir.*;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.optimization.Liveness;
+import pt.up.fe.comp2024.optimization.UseCounts;
+import pt.up.fe.comp2024.utils.BitSets;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+/**
+ * The interference graph of the local variables of a method.
+ * <p>
+ * The vertices are the numbers the {@link Liveness} analysis gives to the local variables. Two variables interfere
+ * when one of them is defined while the other is live, so the edges are read from the live out set of every
+ * instruction that defines a variable. The edges are kept twice: in a {@link BitMatrix}, to add each one only once,
+ * and in an array of neighbours per vertex, which is what the coloring walks.
+ * <p>
+ * Variables copied into one another that do not interfere are coalesced into a single vertex, so they get the same
+ * register and the copy does nothing. A coalesced vertex is represented by one of its variables, and the neighbour
+ * arrays may still hold the others, which are skipped.
+ * <p>
+ * The registers of this and of the parameters are fixed and come before the ones given to the local variables.
+ */
 public class Graph {
 
-    private List<Vertex> localRegisters;
-    private List<Vertex> fixedRegisters;
-    private Stack<Vertex> stack;
+    private static final int[] NO_NEIGHBOURS = new int[0];
 
-    boolean isStatic;
+    private final List<String> variables;
+    private final Descriptor[] descriptors;
 
-    public Graph(HashMap<String, Descriptor> varTable, List<HashSet<String>> interferences, String methodName) {
-        this.stack = new Stack<>();
-        this.isStatic = methodName.equals("main");
-        createVertices(varTable);
-        addEdges(interferences);
-    }
+    private final List<String> fixedVariables;
+    private final List<Descriptor> fixedDescriptors;
 
-    private void createVertices(HashMap<String, Descriptor> varTable) {
-        this.localRegisters = new ArrayList<>();
-        this.fixedRegisters  = new ArrayList<>();
+    private final BitMatrix edges;
+    private final int[][] neighbours;
+    private final int[] neighbourCounts;
+    private final int[] degrees;
 
-        boolean hasThis = false;
-        for (String varName : varTable.keySet()) {
+    private final List<int[]> moves;
+    private final int[] representatives;
+    private int coalesced;
+
+    private int[] order;
+    private int degeneracy;
+    private int savedBytes;
+
+    public Graph(Method method, Liveness liveness) {
+        this.variables = liveness.getVariables();
+        this.descriptors = new Descriptor[variables.size()];
+        this.fixedVariables = new ArrayList<>();
+        this.fixedDescriptors = new ArrayList<>();
+
+        this.edges = new BitMatrix(variables.size());
+        this.neighbours = new int[variables.size()][];
+        this.neighbourCounts = new int[variables.size()];
+        this.degrees = new int[variables.size()];
+        Arrays.fill(neighbours, NO_NEIGHBOURS);
+
+        this.moves = new ArrayList<>();
+        this.representatives = new int[variables.size()];
+        for (int vertex = 0; vertex < representatives.length; vertex++) {
+            representatives[vertex] = vertex;
+        }
 
-            Descriptor descriptor = varTable.get(varName);
-            Vertex vertex = new Vertex(varName, descriptor);
+        createVertices(method, liveness);
+        addEdges(method, liveness);
+    }
+
+    private void createVertices(Method method, Liveness liveness) {
+        boolean hasThis = false;
+        for (var entry : method.getVarTable().entrySet()) {
+            String varName = entry.getKey();
+            Descriptor descriptor = entry.getValue();
 
             if (varName.equals("this")) {
                 hasThis = true;
-                fixedRegisters.add(0, vertex);
+                fixedVariables.add(0, varName);
+                fixedDescriptors.add(0, descriptor);
+            } else if (descriptor.getScope().equals(VarScope.LOCAL)) {
+                descriptors[liveness.getIndex(varName)] = descriptor;
+            } else if (descriptor.getScope().equals(VarScope.PARAMETER)) {
+                fixedVariables.add(varName);
+                fixedDescriptors.add(descriptor);
             }
-            else if (descriptor.getScope().equals(VarScope.LOCAL)) {
-                localRegisters.add(vertex);
-            } else {
-                fixedRegisters.add(vertex);
+        }
+
+        if (!hasThis && !method.getMethodName().equals("main")) {
+            fixedVariables.add(0, "this");
+            fixedDescriptors.add(0, null);
+        }
+    }
+
+    private void addEdges(Method method, Liveness liveness) {
+        int instructions = liveness.getInstructionCount();
+
+        // the variables that are read before being written are all defined when the method starts
+        if (instructions > 0) {
+            long[] entry = liveness.getLiveIn(0);
+            for (int first = BitSets.next(entry, 0); first != -1; first = BitSets.next(entry, first + 1)) {
+                for (int second = BitSets.next(entry, first + 1); second != -1; second = BitSets.next(entry, second + 1)) {
+                    addEdge(first, second);
+                }
+            }
+        }
+
+        for (int i = 0; i < instructions; i++) {
+            long[] defs = liveness.getDefs(i);
+            long[] out = liveness.getLiveOut(i);
+
+            // after a copy both variables hold the same value, so the copied one may stay live in the same register
+            int source = getCopySource(method.getInstructions().get(i), liveness);
+            if (source != -1) {
+                moves.add(new int[]{BitSets.next(defs, 0), source});
+            }
+
+            for (int def = BitSets.next(defs, 0); def != -1; def = BitSets.next(defs, def + 1)) {
+                for (int live = BitSets.next(out, 0); live != -1; live = BitSets.next(out, live + 1)) {
+                    if (live != def && live != source) {
+                        addEdge(def, live);
+                    }
+                }
             }
         }
-        if (!hasThis && !isStatic) {
-            fixedRegisters.add(0, new Vertex("this", null));
+    }
+
+    /**
+     * @return the local variable copied by the instruction into another local variable, or -1 if it is not a copy
+     */
+    private static int getCopySource(Instruction instruction, Liveness liveness) {
+        if (!(instruction instanceof AssignInstruction assign)
+                || !(assign.getDest() instanceof Operand dest) || dest instanceof ArrayOperand
+                || !(assign.getRhs() instanceof SingleOpInstruction copy)
+                || !(copy.getSingleOperand() instanceof Operand source) || source instanceof ArrayOperand) {
+            return -1;
+        }
+
+        int sourceIndex = liveness.getIndex(source.getName());
+        int destIndex = liveness.getIndex(dest.getName());
+        return sourceIndex != -1 && destIndex != -1 && sourceIndex != destIndex ? sourceIndex : -1;
+    }
+
+    private void addEdge(int first, int second) {
+        if (edges.add(first, second)) {
+            addNeighbour(first, second);
+            addNeighbour(second, first);
+            degrees[first]++;
+            degrees[second]++;
+        }
+    }
+
+    private void addNeighbour(int vertex, int neighbour) {
+        int[] current = neighbours[vertex];
+        if (neighbourCounts[vertex] == current.length) {
+            current = Arrays.copyOf(current, Math.max(4, current.length * 2));
+            neighbours[vertex] = current;
+        }
+        current[neighbourCounts[vertex]++] = neighbour;
+    }
+
+    private int find(int vertex) {
+        while (representatives[vertex] != vertex) {
+            representatives[vertex] = representatives[representatives[vertex]];
+            vertex = representatives[vertex];
+        }
+        return vertex;
+    }
+
+    private boolean isRepresentative(int vertex) {
+        return representatives[vertex] == vertex;
+    }
+
+    /**
+     * @return the number of copies whose variables were given the same register
+     */
+    public int getCoalescedCount() {
+        if (order == null) {
+            allocate();
         }
+        return coalesced;
     }
 
-    private void addEdges(List<HashSet<String>> interferences) {
-        for (var interference : interferences) {
-            addEdges(interference);
+    private void allocate() {
+        simplify();
+        if (coalesce(degeneracy + 1)) {
+            simplify();
         }
     }
 
-    private void addEdges(HashSet<String> interference) {
-        for (String varName : interference) {
-            Vertex src = getVertex(varName);
-            if (src == null) continue;
-            for (String destName : interference) {
-                if (!varName.equals(destName) && !src.connectedTo(destName)) {
-                    Vertex dest = getVertex(destName);
-                    if (dest == null) continue;
+    /**
+     * Coalesces the copies whose variables do not interfere, as long as the graph can still be simplified with the
+     * given number of registers. Two vertices are coalesced if the vertex they make has fewer than k neighbours with
+     * k or more neighbours (Briggs), or if every neighbour of one of them either is a neighbour of the other or has
+     * fewer than k neighbours (George).
+     *
+     * @return true if some vertices were coalesced
+     */
+    private boolean coalesce(int k) {
+        int[] seen = new int[variables.size()];
+        int stamp = 0;
 
-                    connect(src, dest);
+        for (int[] move : moves) {
+            int first = find(move[0]);
+            int second = find(move[1]);
+            if (first == second || edges.contains(first, second)) {
+                continue;
+            }
+
+            stamp++;
+            int significant = 0;
+            for (int vertex : new int[]{first, second}) {
+                for (int i = 0; i < neighbourCounts[vertex]; i++) {
+                    int neighbour = neighbours[vertex][i];
+                    if (!isRepresentative(neighbour) || seen[neighbour] == stamp) {
+                        continue;
+                    }
+                    seen[neighbour] = stamp;
+
+                    // a neighbour of both loses one of them
+                    boolean shared = edges.contains(neighbour, first) && edges.contains(neighbour, second);
+                    if (degrees[neighbour] - (shared ? 1 : 0) >= k) {
+                        significant++;
+                    }
                 }
             }
+
+            if (significant < k || isGeorgeSafe(second, first, k)) {
+                merge(first, second);
+            } else if (isGeorgeSafe(first, second, k)) {
+                merge(second, first);
+            } else {
+                continue;
+            }
+            coalesced++;
         }
-    }
 
-    private void connect(Vertex src, Vertex dest) {
-        src.addEdge(new Edge(src, dest));
-        dest.addEdge(new Edge(dest, src));
+        return coalesced > 0;
     }
 
-    private Vertex getVertex(String varName) {
-        for (var v : localRegisters) {
-            if (v.getVariable().equals(varName)) {
-                return v;
+    /**
+     * @return true if every neighbour of the removed vertex is a neighbour of the kept one or has less than k
+     */
+    private boolean isGeorgeSafe(int removed, int kept, int k) {
+        for (int i = 0; i < neighbourCounts[removed]; i++) {
+            int neighbour = neighbours[removed][i];
+            if (isRepresentative(neighbour) && degrees[neighbour] >= k && !edges.contains(neighbour, kept)) {
+                return false;
             }
         }
-        return null;
+        return true;
     }
 
-    private void removeVertex(Vertex vertex) {
-        for (Edge edge : vertex.getCurrentEdges()) {
-            edge.getDest().removeCurrentEdge(vertex);
+    private void merge(int kept, int removed) {
+        representatives[removed] = kept;
+
+        for (int i = 0; i < neighbourCounts[removed]; i++) {
+            int neighbour = neighbours[removed][i];
+            if (!isRepresentative(neighbour)) {
+                continue;
+            }
+
+            if (edges.add(kept, neighbour)) {
+                addNeighbour(kept, neighbour);
+                addNeighbour(neighbour, kept);
+                degrees[kept]++;
+            } else {
+                degrees[neighbour]--;
+            }
         }
-        vertex.getCurrentEdges().clear();
     }
 
-    public boolean colorWithKColors(int k) {
+    /**
+     * Orders the vertices so that each one has the least degree among the ones after it (a degeneracy ordering),
+     * removing them from buckets indexed by degree in time linear in the number of edges.
+     * <p>
+     * Each vertex has at most {@link #degeneracy} neighbours after it, so going through the order backwards and giving
+     * each vertex a register that none of its neighbours has takes no more than degeneracy + 1 registers.
+     */
+    private void simplify() {
+        int size = variables.size() - coalesced;
+        order = new int[size];
+        degeneracy = 0;
 
-        k -= fixedRegisters.size();
-        stack.clear();
+        int maxDegree = 0;
+        for (int vertex = 0; vertex < variables.size(); vertex++) {
+            if (isRepresentative(vertex)) {
+                maxDegree = Math.max(maxDegree, degrees[vertex]);
+            }
+        }
 
-        List<Vertex> vertexes = new ArrayList<>(localRegisters);
-        for (Vertex v : localRegisters) {
-            v.setCurrentEdges(new ArrayList<>(v.getEdges()));
+        // the vertices sorted by their current degree, and where each degree starts in that array
+        int[] currentDegrees = Arrays.copyOf(degrees, degrees.length);
+        int[] bucketStarts = new int[maxDegree + 1];
+        for (int vertex = 0; vertex < variables.size(); vertex++) {
+            if (isRepresentative(vertex)) {
+                bucketStarts[currentDegrees[vertex]]++;
+            }
+        }
+        for (int degree = 0, start = 0; degree <= maxDegree; degree++) {
+            int count = bucketStarts[degree];
+            bucketStarts[degree] = start;
+            start += count;
         }
 
-        // Remove nodes that have degree < N
-        var iterator = localRegisters.iterator();
-        while(iterator.hasNext()) {
-            Vertex vertex = iterator.next();
-            if (vertex.getCurrentEdges().size() < k) {
-                removeVertex(vertex);
-                stack.push(vertex);
-                iterator.remove();
-                iterator = localRegisters.iterator();
+        int[] sorted = new int[size];
+        int[] positions = new int[variables.size()];
+        int[] next = Arrays.copyOf(bucketStarts, bucketStarts.length);
+        for (int vertex = 0; vertex < variables.size(); vertex++) {
+            if (isRepresentative(vertex)) {
+                positions[vertex] = next[currentDegrees[vertex]]++;
+                sorted[positions[vertex]] = vertex;
             }
         }
 
-        localRegisters = vertexes;
-        return stack.size() == localRegisters.size();
+        for (int i = 0; i < size; i++) {
+            int vertex = sorted[i];
+            order[i] = vertex;
+            degeneracy = Math.max(degeneracy, currentDegrees[vertex]);
+
+            int[] vertexNeighbours = neighbours[vertex];
+            for (int j = 0; j < neighbourCounts[vertex]; j++) {
+                int neighbour = vertexNeighbours[j];
+                int degree = currentDegrees[neighbour];
+                if (!isRepresentative(neighbour) || degree <= currentDegrees[vertex]) {
+                    continue;
+                }
+
+                // swap the neighbour with the first vertex of its bucket, which then starts one position later
+                int first = sorted[bucketStarts[degree]];
+                if (first != neighbour) {
+                    int position = positions[neighbour];
+                    sorted[position] = first;
+                    positions[first] = position;
+                    sorted[bucketStarts[degree]] = neighbour;
+                    positions[neighbour] = bucketStarts[degree];
+                }
+                bucketStarts[degree]++;
+                currentDegrees[neighbour]--;
+            }
+        }
     }
 
-    public void allocateRegisters(int k) {
+    /**
+     * Colors the graph with k registers, then numbers the colors so that the most used variables get the lowest
+     * registers. The JVM loads and stores registers 0 to 3 with instructions one byte shorter than the others.
+     *
+     * @param useCounts how often each variable is used, to order the registers by
+     */
+    public void allocateRegisters(int k, UseCounts useCounts) {
+
+        if (order == null) {
+            allocate();
+        }
+
+        int[] registers = new int[variables.size()];
+        Arrays.fill(registers, -1);
 
-        colorWithKColors(k);
+        int min = fixedVariables.size();
+        // the last vertex that saw each register used by a neighbour, so it never has to be cleared
+        int[] usedRegs = new int[Math.max(0, k - min)];
+        Arrays.fill(usedRegs, -1);
+        int colors = 0;
+        for (int i = order.length - 1; i >= 0; i--) {
+            int vertex = order[i];
 
-        for (Vertex vertex : localRegisters) {
-            vertex.getDescriptor().setVirtualReg(-1);
+            int[] vertexNeighbours = neighbours[vertex];
+            for (int j = 0; j < neighbourCounts[vertex]; j++) {
+                int neighbour = vertexNeighbours[j];
+                int reg = isRepresentative(neighbour) ? registers[neighbour] : -1;
+                if (reg >= min && reg < k) {
+                    usedRegs[reg - min] = vertex;
+                }
+            }
+
+            for (int j = 0; j < usedRegs.length; j++) {
+                if (usedRegs[j] != vertex) {
+                    registers[vertex] = min + j;
+                    colors = Math.max(colors, j + 1);
+                    break;
+                }
+            }
+        }
+
+        int[] renamed = orderByUse(registers, colors, min, useCounts);
+
+        savedBytes = 0;
+        for (int vertex = 0; vertex < variables.size(); vertex++) {
+            int register = registers[find(vertex)];
+            int renamedRegister = register < min ? register : min + renamed[register - min];
+            savedBytes += useCounts.getCount(vertex) * (loadStoreSize(register) - loadStoreSize(renamedRegister));
+            descriptors[vertex].setVirtualReg(renamedRegister);
+        }
+    }
+
+    /**
+     * @return the position of each color when sorted by the weighted uses of its variables, most used first
+     */
+    private int[] orderByUse(int[] registers, int colors, int min, UseCounts useCounts) {
+        double[] colorWeights = new double[colors];
+        for (int vertex = 0; vertex < variables.size(); vertex++) {
+            colorWeights[registers[find(vertex)] - min] += useCounts.getWeight(vertex);
         }
 
-        while (!stack.empty()) {
-            Vertex vertex = stack.pop();
-            vertex.allocateRegister(fixedRegisters.size(), k - 1);
+        // the sort is stable, so colors used as much keep the order the coloring gave them
+        Integer[] byWeight = new Integer[colors];
+        for (int color = 0; color < colors; color++) {
+            byWeight[color] = color;
         }
+        Arrays.sort(byWeight, (first, second) -> Double.compare(colorWeights[second], colorWeights[first]));
+
+        int[] renamed = new int[colors];
+        for (int position = 0; position < colors; position++) {
+            renamed[byWeight[position]] = position;
+        }
+        return renamed;
+    }
+
+    /**
+     * @return the bytes of an iload, istore, aload or astore of the register
+     */
+    private static int loadStoreSize(int register) {
+        return register <= 3 ? 1 : 2;
     }
 
+    /**
+     * @return the registers needed by this, the parameters and the local variables
+     */
     public int minRegisters() {
-        int min = fixedRegisters.size();
-        int max = min + localRegisters.size();
-        while (min < max) {
-            int mid = min + (max - min) / 2;
-            if (colorWithKColors(mid)) {
-                max = mid;
+        if (order == null) {
+            allocate();
+        }
+
+        int locals = variables.isEmpty() ? 0 : degeneracy + 1;
+        return fixedVariables.size() + locals;
+    }
+
+    /**
+     * Chooses the variables to keep in memory so that the others fit in k registers.
+     * <p>
+     * Vertices are removed as by the simplify step of the coloring while some vertex has fewer neighbours left than
+     * there are registers. When none has, the one with the least cost per remaining neighbour is spilled, since it
+     * is the cheapest way of making room for the most others. Spilling a coalesced vertex spills every variable in
+     * it that can be spilled.
+     *
+     * @param costs the cost of spilling each variable, infinite for the ones that cannot be spilled
+     * @return the variables to spill, or an empty list if spilling cannot help
+     */
+    public List<String> selectSpills(int k, double[] costs) {
+        if (order == null) {
+            allocate();
+        }
+
+        int colors = k - fixedVariables.size();
+        int size = variables.size();
+
+        // a coalesced vertex costs what its variables that can be spilled cost, and only those are spilled
+        double[] vertexCosts = new double[size];
+        Arrays.fill(vertexCosts, Double.POSITIVE_INFINITY);
+        for (int vertex = 0; vertex < size; vertex++) {
+            int representative = find(vertex);
+            if (Double.isFinite(costs[vertex])) {
+                double current = vertexCosts[representative];
+                vertexCosts[representative] = Double.isFinite(current) ? current + costs[vertex] : costs[vertex];
+            }
+        }
+
+        int[] currentDegrees = Arrays.copyOf(degrees, size);
+        boolean[] removed = new boolean[size];
+        long[] removable = BitSets.create(size);
+        for (int vertex = 0; vertex < size; vertex++) {
+            if (!isRepresentative(vertex)) {
+                removed[vertex] = true;
+            } else if (currentDegrees[vertex] < colors) {
+                BitSets.add(removable, vertex);
+            }
+        }
+
+        boolean[] spilled = new boolean[size];
+        boolean spilledAny = false;
+        for (int remaining = size - coalesced; remaining > 0; remaining--) {
+            int vertex = BitSets.next(removable, 0);
+
+            if (vertex == -1) {
+                double best = Double.POSITIVE_INFINITY;
+                for (int candidate = 0; candidate < size; candidate++) {
+                    double cost = vertexCosts[candidate] / Math.max(1, currentDegrees[candidate]);
+                    if (!removed[candidate] && cost < best) {
+                        best = cost;
+                        vertex = candidate;
+                    }
+                }
+
+                // only variables that cannot be spilled are left
+                if (vertex == -1) {
+                    break;
+                }
+                spilled[vertex] = true;
+                spilledAny = true;
             } else {
-                min = mid + 1;
+                BitSets.remove(removable, vertex);
+            }
+
+            removed[vertex] = true;
+            int[] vertexNeighbours = neighbours[vertex];
+            for (int i = 0; i < neighbourCounts[vertex]; i++) {
+                int neighbour = vertexNeighbours[i];
+                if (!removed[neighbour] && --currentDegrees[neighbour] < colors) {
+                    BitSets.add(removable, neighbour);
+                }
             }
         }
-        return min;
+
+        List<String> spills = new ArrayList<>();
+        for (int vertex = 0; spilledAny && vertex < size; vertex++) {
+            if (spilled[find(vertex)] && Double.isFinite(costs[vertex])) {
+                spills.add(variables.get(vertex));
+            }
+        }
+        return spills;
+    }
+
+    /**
+     * @return the bytes of loads and stores saved by ordering the registers by use, in the last allocation
+     */
+    public int getSavedBytes() {
+        return savedBytes;
     }
 
     public void reportMapping(OllirResult ollirResult, String methodName) {
         StringBuilder message = new StringBuilder();
         message.append("Method ").append(methodName).append(":\n");
 
-        for (Vertex vertex : fixedRegisters) {
-            if (vertex.getDescriptor() == null) {
-                message.append(vertex.getVariable()).append(" -> register 0\n");
-                continue;
-            }
-            message.append(vertex.getVariable()).append(" -> register ").append(vertex.getDescriptor().getVirtualReg()).append("\n");
+        for (int i = 0; i < fixedVariables.size(); i++) {
+            Descriptor descriptor = fixedDescriptors.get(i);
+            int register = descriptor == null ? 0 : descriptor.getVirtualReg();
+            message.append(fixedVariables.get(i)).append(" -> register ").append(register).append("\n");
         }
 
-        for (Vertex vertex : localRegisters) {
-            message.append(vertex.getVariable()).append(" -> register ").append(vertex.getDescriptor().getVirtualReg()).append("\n");
+        for (int i = 0; i < variables.size(); i++) {
+            message.append(variables.get(i)).append(" -> register ").append(descriptors[i].getVirtualReg()).append("\n");
         }
+        message.append("Bytes saved by giving the most used variables the lowest registers: ").append(savedBytes)
+                .append("\n");
 
         ollirResult.getReports().add(Report.newLog(
                 Stage.OPTIMIZATION,
@@ -10,12 +10,14 @@ public class BinExprUtils {
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
     private final SymbolTable table;
+    private final OllirContext context;
 
     private String currMethod;
     private String ollirType;
 
-    public BinExprUtils(SymbolTable table,String currMethod,String ollirType) {
+    public BinExprUtils(SymbolTable table,String currMethod,String ollirType,OllirContext context) {
         this.table = table;
+        this.context = context;
         this.currMethod=currMethod;
         this.ollirType=ollirType;
     }
@@ -36,7 +38,7 @@ public class BinExprUtils {
         if (Objects.requireNonNull(TypeUtils.getExprType(node, table, currMethod)).hasAttribute("isExternal")) {
             code = code.substring(0, code.lastIndexOf(".")) + ollirType + ";\n";
         }
-        String newTmp = OptUtils.getTemp() + ollirType;
+        String newTmp = context.getTemp() + ollirType;
         computation.append(newTmp)
                 .append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
                 .append(code);
@@ -48,7 +50,7 @@ public class BinExprUtils {
     public OllirExprResult arrayElemExprHandler(JmmNode node,String code) {
         StringBuilder computation = new StringBuilder();
 
-        String newTmp = OptUtils.getTemp() + ollirType;
+        String newTmp = context.getTemp() + ollirType;
             computation.append(newTmp)
                     .append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
                     .append(code).append(";\n");
@@ -64,10 +66,10 @@ public class BinExprUtils {
         StringBuilder computation = new StringBuilder();
         computation.append(lhs.getComputation());
 
-        String temp = OptUtils.getTemp() + ".bool";
+        String temp = context.getTemp() + ".bool";
 
-        String ifNumber= OptUtils.getIf();
-        String endIfNumber= OptUtils.getEndIf();
+        String ifNumber= context.getIf();
+        String endIfNumber= context.getEndIf();
 
         computation.append("if(").append(lhs.getCode()).append(") goto ").append(ifNumber).append(";\n");
 
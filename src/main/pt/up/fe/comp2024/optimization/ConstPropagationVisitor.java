@@ -177,7 +177,10 @@ public class ConstPropagationVisitor extends AJmmVisitor<SymbolTable, Boolean>
         if (in.containsKey(varName)) {
             String kind = in.get(varName).getKind();
             if (!kind.equals("T") && !kind.equals("F")) {
-                varRefExpr.replace(in.get(varName));
+                // a new literal, the constant node is still in the tree and copies of it lose their type
+                JmmNodeImpl newExpr = new JmmNodeImpl(kind);
+                newExpr.put("value", in.get(varName).get("value"));
+                varRefExpr.replace(newExpr);
                 return true;
             }
         }
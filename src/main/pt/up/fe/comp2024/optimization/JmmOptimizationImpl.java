@@ -8,6 +8,8 @@ import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.CompilerConfig;
 import pt.up.fe.comp2024.graph.Graph;
+import pt.up.fe.comp2024.profiling.Profiler;
+import pt.up.fe.comp2024.utils.FragmentCache;
 
 import java.util.*;
 
@@ -15,17 +17,41 @@ import static pt.up.fe.comp2024.CompilerConfig.getRegisterAllocation;
 
 public class JmmOptimizationImpl implements JmmOptimization {
 
+    private final FragmentCache methodCache;
+
+    public JmmOptimizationImpl() {
+        this(null);
+    }
+
+    /**
+     * @param methodCache cache of the OLLIR code of each method, shared by every call to
+     *                    {@link #toOllir(JmmSemanticsResult)}, or null to always generate every method
+     */
+    public JmmOptimizationImpl(FragmentCache methodCache) {
+        this.methodCache = methodCache;
+    }
+
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
 
         // convert vararg types
         VarargsConverter varargsConverter = new VarargsConverter();
-        varargsConverter.visit(semanticsResult.getRootNode(), semanticsResult.getSymbolTable());
-
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
-        var ollirCode = visitor.visit(semanticsResult.getRootNode());
-
-        return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+        Profiler.measure("varargs", () -> {
+            varargsConverter.visit(semanticsResult.getRootNode(), semanticsResult.getSymbolTable());
+        });
+
+        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable(), methodCache);
+        var ollirCode = Profiler.measure("generation", () -> {
+            var code = visitor.visit(semanticsResult.getRootNode());
+            Profiler.count(code.lines().count(), "lines");
+            return code;
+        });
+
+        return Profiler.measure("ollirParse", () -> {
+            var ollirResult = new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+            Profiler.count(countInstructions(ollirResult.getOllirClass()), "instructions");
+            return ollirResult;
+        });
     }
 
     @Override
@@ -43,8 +69,9 @@ public class JmmOptimizationImpl implements JmmOptimization {
         while (canBeOptimized) {
             var root = semanticsResult.getRootNode();
 
-            hasFolded = constFoldVisitor.visit(root);
-            hasPropagated = constPropagationVisitor.visit(root, table);
+            hasFolded = Profiler.measure("constFold", () -> constFoldVisitor.visit(root));
+            hasPropagated = Profiler.measure("constPropagation", () -> constPropagationVisitor.visit(root, table));
+            Profiler.count(1, "iterations");
 
             canBeOptimized = hasFolded || hasPropagated;
         }
@@ -55,110 +82,103 @@ public class JmmOptimizationImpl implements JmmOptimization {
     @Override
     public OllirResult optimize(OllirResult ollirResult) {
 
-        ollirResult.getOllirClass().buildCFGs();
+        Profiler.measure("cfg", () -> {
+            ollirResult.getOllirClass().buildCFGs();
+            Profiler.count(countInstructions(ollirResult.getOllirClass()), "instructions");
+        });
 
         int n = getRegisterAllocation(ollirResult.getConfig());
         if (n == -1)  {
             return ollirResult;
         }
 
+        Spiller spiller = new Spiller();
+        OllirResult result = ollirResult;
+        while (allocateRegisters(result, n, spiller)) {
+            var spilledFrom = result;
+            result = Profiler.measure("spill", () -> {
+                Profiler.count(spiller.getSpilledCount(), "variables");
+                return respill(spilledFrom, spiller);
+            });
+        }
+
+        return result;
+    }
+
+    /**
+     * Gives registers to the variables of every method, or, when a method needs more than n registers, chooses the
+     * variables it keeps in memory instead.
+     *
+     * @return true if variables were spilled, and the allocation must be retried on the rewritten code
+     */
+    private boolean allocateRegisters(OllirResult ollirResult, int n, Spiller spiller) {
         List<Method> methods = ollirResult.getOllirClass().getMethods();
+        List<Graph> graphs = new ArrayList<>();
+        List<UseCounts> useCounts = new ArrayList<>();
+        List<Integer> minimums = new ArrayList<>();
+        boolean spilled = false;
+
         for (Method method : methods) {
-            var interferences = livenessAnalysis(method);
-            Graph graph = new Graph(method.getVarTable(), interferences, method.getMethodName());
-            int min = graph.minRegisters();
+            Liveness liveness = Profiler.measure("liveness", () -> {
+                Profiler.count(method.getInstructions().size(), "instructions");
+                return Liveness.analyse(method);
+            });
+            Graph graph = Profiler.measure("interferenceGraph", () -> {
+                Profiler.count(method.getVarTable().size(), "variables");
+                return new Graph(method, liveness);
+            });
+            int min = Profiler.measure("registerMinimum", () -> {
+                int minRegisters = graph.minRegisters();
+                Profiler.count(minRegisters, "registers");
+                return minRegisters;
+            });
+            UseCounts methodUseCounts = UseCounts.analyse(method, liveness);
+            graphs.add(graph);
+            useCounts.add(methodUseCounts);
+            minimums.add(min);
+
             if (n == 0 || n >= min) {
-                graph.allocateRegisters(min);
-                graph.reportMapping(ollirResult, method.getMethodName());
-            } else {
+                continue;
+            }
+
+            var spills = Profiler.measure("spillSelection",
+                    () -> graph.selectSpills(n, spiller.getCosts(method, methodUseCounts, liveness)));
+            if (spills.isEmpty()) {
                 String message = String.format("Can't allocate %d registers, minimum %d required", n, min);
                 ollirResult.getReports().add(Report.newError(
                         Stage.OPTIMIZATION,
                         1,1,
                         message,
                         null));
-                return ollirResult;
+                return false;
             }
 
+            spiller.spill(method, spills);
+            spilled = true;
         }
 
-        return ollirResult;
-    }
-
-    private HashMap<Node, HashSet<String>> defs(Method method, List<Instruction> instructions) {
-        HashMap<Node, HashSet<String>> map = new HashMap<>();
-        for (Instruction instruction : instructions) {
-            map.put(instruction, def(method, instruction));
+        if (spilled) {
+            return true;
         }
-        return map;
-    }
 
-    private HashSet<String> def(Method method, Instruction instruction) {
-        HashSet<String> set = new HashSet<>();
-        if (instruction instanceof AssignInstruction assignInstruction) {
-            Operand op = (Operand) assignInstruction.getDest();
-            String name = op.getName();
-            if (method.getVarTable().containsKey(name)) {
-                Descriptor desc = method.getVarTable().get(name);
-                if (desc.getScope().equals(VarScope.LOCAL)) {
-                    set.add(op.getName());
-                }
+        Profiler.measure("registerAllocation", () -> {
+            for (int i = 0; i < methods.size(); i++) {
+                graphs.get(i).allocateRegisters(minimums.get(i), useCounts.get(i));
+                graphs.get(i).reportMapping(ollirResult, methods.get(i).getMethodName());
             }
-        }
-        return set;
+        });
+        return false;
     }
-    private List<HashSet<String>> livenessAnalysis(Method method) {
-        var nodes = method.getInstructions();
 
-        HashMap<Node, HashSet<String>> defs = defs(method, nodes);
-        HashMap<Node, HashSet<String>> uses = UseUtils.uses(method, nodes);
-        HashMap<Node, HashSet<String>> in = new HashMap<>();
-        HashMap<Node, HashSet<String>> out = new HashMap<>();
-
-        for (Node n : nodes) {
-            in.put(n, new HashSet<>());
-            out.put(n, new HashSet<>());
-        }
-
-        HashMap<Node, HashSet<String>> tmpIn = new HashMap<>(in);
-        HashMap<Node, HashSet<String>> tmpOut = new HashMap<>(out);
-
-        do {
-            for (Node n : nodes) {
-                tmpIn.replace(n, in.get(n));
-                tmpOut.replace(n, out.get(n));
-
-                // in(n) = use(n) ∪ (out(n) - def(n))
-                var newIn = new HashSet<>(out.get(n));
-                newIn.removeAll(defs.get(n));
-                newIn.addAll(uses.get(n));
-                in.replace(n, newIn);
-
-                // out(n) = ∪ in(s), ∀ s ∈ succ(n)
-                HashSet<String> newOut = new HashSet<>();
-                for (var suc : n.getSuccessors()) {
-                    if (suc.getNodeType().toString().equals("END")) {
-                        break;
-                    }
-                    newOut.addAll(in.get(suc));
-                }
-                out.replace(n, newOut);
-            }
-        } while (!out.equals(tmpOut) || !in.equals(tmpIn));
-
-        List<HashSet<String>> interferences = new ArrayList<>();
-
-        for (Node n : nodes) {
-            out.get(n).addAll(defs.get(n));
-            if (in.get(n).size() > 1) {
-                interferences.add(in.get(n));
-            }
-            if (out.get(n).size() > 1) {
-                interferences.add(out.get(n));
-            }
-        }
-
-       return interferences;
+    private static OllirResult respill(OllirResult ollirResult, Spiller spiller) {
+        var semantics = new JmmSemanticsResult(null, ollirResult.getSymbolTable(), ollirResult.getReports(),
+                ollirResult.getConfig());
+        var spilled = new OllirResult(semantics, spiller.rewrite(ollirResult.getOllirCode()), Collections.emptyList());
+        spilled.getOllirClass().buildCFGs();
+        return spilled;
+    }
 
+    private static long countInstructions(ClassUnit classUnit) {
+        return classUnit.getMethods().stream().mapToLong(method -> method.getInstructions().size()).sum();
     }
 }
@@ -0,0 +1,220 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.tree.TreeNode;
+import pt.up.fe.comp2024.utils.BitSets;
+
+import java.util.*;
+
+/**
+ * Liveness of the local variables of a method, computed backwards over its control-flow graph.
+ * <p>
+ * Local variables are numbered from 0 in the order of the var table, and the def, use, in and out sets of each
+ * instruction are bitsets over those numbers (see {@link BitSets}). The sets are solved with a worklist: an
+ * instruction is only visited again when the in set of one of its successors changed.
+ * <p>
+ * The CFG of the method must have been built.
+ */
+public class Liveness {
+
+    private final List<Instruction> instructions;
+    private final List<String> variables;
+    private final Map<String, Integer> indices;
+
+    private final long[][] defs;
+    private final long[][] uses;
+    private final long[][] in;
+    private final long[][] out;
+
+    private final int[][] successors;
+    private final int[][] predecessors;
+
+    private long visits;
+
+    private Liveness(Method method) {
+        this.instructions = method.getInstructions();
+        this.variables = new ArrayList<>();
+        this.indices = new HashMap<>();
+
+        method.getVarTable().forEach((name, descriptor) -> {
+            if (descriptor.getScope() == VarScope.LOCAL && !name.equals("this")) {
+                indices.put(name, variables.size());
+                variables.add(name);
+            }
+        });
+
+        int size = instructions.size();
+        this.defs = new long[size][];
+        this.uses = new long[size][];
+        this.in = new long[size][];
+        this.out = new long[size][];
+        this.successors = new int[size][];
+        this.predecessors = new int[size][];
+
+        for (int i = 0; i < size; i++) {
+            var instruction = instructions.get(i);
+            defs[i] = BitSets.create(variables.size());
+            uses[i] = BitSets.create(variables.size());
+            in[i] = BitSets.create(variables.size());
+            out[i] = BitSets.create(variables.size());
+            // the CFG also links a return to the instruction after it, which is never executed next
+            successors[i] = instruction.getInstType() == InstructionType.RETURN
+                    ? new int[0]
+                    : toIndices(instruction.getSuccessors());
+            predecessors[i] = toIndices(instruction.getPredecessors());
+            addDefsAndUses(instruction, defs[i], uses[i]);
+        }
+    }
+
+    public static Liveness analyse(Method method) {
+        var liveness = new Liveness(method);
+        liveness.solve();
+        return liveness;
+    }
+
+    public int getInstructionCount() {
+        return instructions.size();
+    }
+
+    /**
+     * @return the number of times an instruction was visited until the sets stopped changing
+     */
+    public long getVisits() {
+        return visits;
+    }
+
+    /**
+     * @return the local variables, in the order of their numbers
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * @return the number of the local variable, or -1 if the name is not a local variable
+     */
+    public int getIndex(String variable) {
+        return indices.getOrDefault(variable, -1);
+    }
+
+    /**
+     * The sets returned by these methods are the ones used by the analysis and must not be changed.
+     */
+    public long[] getDefs(int instruction) {
+        return defs[instruction];
+    }
+
+    public long[] getUses(int instruction) {
+        return uses[instruction];
+    }
+
+    public long[] getLiveIn(int instruction) {
+        return in[instruction];
+    }
+
+    public long[] getLiveOut(int instruction) {
+        return out[instruction];
+    }
+
+    private void solve() {
+        int size = instructions.size();
+
+        // a stack, filled so that the last instruction is visited first
+        int[] worklist = new int[size];
+        boolean[] queued = new boolean[size];
+        int pending = 0;
+        for (int i = 0; i < size; i++) {
+            worklist[pending++] = i;
+            queued[i] = true;
+        }
+
+        long[] newIn = BitSets.create(variables.size());
+        while (pending > 0) {
+            int current = worklist[--pending];
+            queued[current] = false;
+            visits++;
+
+            // out(n) = ∪ in(s), ∀ s ∈ succ(n)
+            long[] currentOut = out[current];
+            Arrays.fill(currentOut, 0);
+            for (int successor : successors[current]) {
+                BitSets.addAll(currentOut, in[successor]);
+            }
+
+            // in(n) = use(n) ∪ (out(n) - def(n))
+            long[] currentDefs = defs[current];
+            long[] currentUses = uses[current];
+            for (int word = 0; word < newIn.length; word++) {
+                newIn[word] = currentUses[word] | (currentOut[word] & ~currentDefs[word]);
+            }
+
+            if (Arrays.equals(newIn, in[current])) {
+                continue;
+            }
+
+            System.arraycopy(newIn, 0, in[current], 0, newIn.length);
+            for (int predecessor : predecessors[current]) {
+                if (!queued[predecessor]) {
+                    queued[predecessor] = true;
+                    worklist[pending++] = predecessor;
+                }
+            }
+        }
+    }
+
+    private void addDefsAndUses(Instruction instruction, long[] instructionDefs, long[] instructionUses) {
+        if (instruction instanceof AssignInstruction assign) {
+            var dest = assign.getDest();
+
+            // storing into an array reads the array and the index
+            if (dest instanceof ArrayOperand) {
+                addUses(dest, instructionUses);
+            } else if (dest instanceof Operand operand) {
+                addVariable(operand, instructionDefs);
+            }
+
+            addUses(assign.getRhs(), instructionUses);
+            return;
+        }
+
+        addUses(instruction, instructionUses);
+    }
+
+    private void addUses(TreeNode node, long[] instructionUses) {
+        if (node instanceof Operand operand) {
+            addVariable(operand, instructionUses);
+        }
+
+        for (var child : node.getChildren()) {
+            addUses(child, instructionUses);
+        }
+    }
+
+    private void addVariable(Operand operand, long[] set) {
+        if (operand.isLiteral()) {
+            return;
+        }
+
+        int index = getIndex(operand.getName());
+        if (index != -1) {
+            BitSets.add(set, index);
+        }
+    }
+
+    /**
+     * @return the positions of the given nodes in the instruction list, leaving out the begin and end nodes
+     */
+    private int[] toIndices(List<Node> nodes) {
+        int[] result = new int[nodes.size()];
+        int count = 0;
+
+        for (var node : nodes) {
+            // the CFG numbers the instructions from 1, in the order of the list
+            if (node.getNodeType() == NodeType.INSTRUCTION) {
+                result[count++] = node.getId() - 1;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,64 @@
+package pt.up.fe.comp2024.optimization;
+
+/**
+ * Per-compilation state of the OLLIR generation, namely the counters used to create unique temporaries and labels.
+ * <p>
+ * One instance per generated class, which keeps the generated code independent of previous compilations
+ * and allows several classes to be generated concurrently. Temporaries and labels only have to be unique inside a
+ * method, so the counters are reset before each method, which makes its code independent of the methods before it.
+ */
+public class OllirContext {
+
+    private int tempNumber = -1;
+    private int ifNumber = 0;
+    private int whileNumber = 0;
+
+    public void reset() {
+        tempNumber = -1;
+        ifNumber = 0;
+        whileNumber = 0;
+    }
+
+    public String getTemp() {
+        return getTemp("tmp");
+    }
+
+    public String getTemp(String prefix) {
+        return prefix + getNextTempNum();
+    }
+
+    public int getNextTempNum() {
+        tempNumber += 1;
+        return tempNumber;
+    }
+
+    public int getNextIfNum() {
+        ifNumber += 1;
+        return ifNumber;
+    }
+
+    public String getIf() {
+        return "if" + getNextIfNum();
+    }
+
+    public String getEndIf() {
+        return "endif" + ifNumber;
+    }
+
+    public int getNextWhileNum() {
+        whileNumber += 1;
+        return whileNumber;
+    }
+
+    public String getWhileCond() {
+        return "whileCond" + getNextWhileNum();
+    }
+
+    public String getWhileLoop() {
+        return "whileLoop" + whileNumber;
+    }
+
+    public String getWhileEnd() {
+        return "whileEnd" + whileNumber;
+    }
+}
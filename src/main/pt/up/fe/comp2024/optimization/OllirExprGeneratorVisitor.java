@@ -7,7 +7,9 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.TypeUtils;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
@@ -25,15 +27,24 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
     private final String END_STMT = ";\n";
 
+    /**
+     * The types of a method of the class in OLLIR, a vararg being an array.
+     */
+    private record OllirSignature(String returnType, List<String> parameterTypes) {
+    }
+
     private final SymbolTable table;
+    private final OllirContext context;
+    private final Map<String, OllirSignature> ollirSignatures = new HashMap<>();
     private String currMethod;
 
     public void setCurrMethod(String methodName) {
         this.currMethod = methodName;
     }
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    public OllirExprGeneratorVisitor(SymbolTable table, OllirContext context) {
         this.table = table;
+        this.context = context;
     }
 
     @Override
@@ -81,7 +92,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
             default -> "";
         };
 
-        BinExprUtils binExpUtils = new BinExprUtils(table,currMethod,ollirType);
+        BinExprUtils binExpUtils = new BinExprUtils(table,currMethod,ollirType,context);
 
         OllirExprResult lhs = visit(left);
         OllirExprResult rhs = visit(right);
@@ -93,7 +104,8 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
             List<String> simple = Arrays.asList("IntegerLiteral", "BooleanLiteral", "VarRefExpr");
             if (simple.contains(leftKind) && simple.contains(rightKind)) {
                 String code = lhs.getCode() + SPACE + operator + ollirType + SPACE + rhs.getCode();
-                return new OllirExprResult(code, "");
+                // fields are read into temporaries first
+                return new OllirExprResult(code, lhs.getComputation() + rhs.getComputation());
             }
         }
 
@@ -130,7 +142,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         Type resType = TypeUtils.getExprType(node, table, currMethod);
         assert resType != null;
         String resOllirType = OptUtils.toOllirType(resType);
-        String code = OptUtils.getTemp() + resOllirType;
+        String code = context.getTemp() + resOllirType;
 
         computation.append(code).append(SPACE)
                 .append(ASSIGN).append(resOllirType).append(SPACE)
@@ -153,12 +165,10 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         assert type != null;
         String ollirType = OptUtils.toOllirType(type);
 
-        boolean isField = table.getFields().stream().anyMatch(field -> field.getName().equals(id));
-        boolean isLocal = table.getLocalVariables(currMethod).stream().anyMatch(local -> local.getName().equals(id));
-        boolean isParam = table.getParameters(currMethod).stream().anyMatch(param -> param.getName().equals(id));
+        var variable = TypeUtils.resolveVariable(id, table, currMethod);
 
-        if(isField && !(isLocal || isParam)){
-            code = OptUtils.getTemp() + ollirType;
+        if(variable != null && variable.isField()){
+            code = context.getTemp() + ollirType;
             computation.append(code)
                     .append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
                     .append("getfield(this, ").append(id).append(ollirType).append(")")
@@ -175,7 +185,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
         String resType = node.get("name");
         String resOllirType = "." + resType;
-        String code = OptUtils.getTemp() + resOllirType;
+        String code = context.getTemp() + resOllirType;
 
         computation.append(code).append(SPACE)
                 .append(ASSIGN).append(resOllirType).append(SPACE)
@@ -206,14 +216,13 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
             OllirExprResult left = visit(object);
             computation.append(left.getComputation());
 
-            String temp = OptUtils.getTemp() + tipo;
+            String temp = context.getTemp() + tipo;
             computation.append(temp).append(SPACE)
                     .append(ASSIGN).append(tipo).append(SPACE)
                     .append(left.getCode());
 
             if (objectType.getName().equals(table.getClassName())) {
-                Type returnType = table.getReturnType(method);
-                ollirReturnType = OptUtils.toOllirType(returnType);
+                ollirReturnType = getOllirReturnType(method);
             }
             else {
                 ollirReturnType = OptUtils.toOllirType(objectType);
@@ -234,8 +243,8 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
             OllirExprResult expr = visit(object);
             String className = TypeUtils.getExprType(object, table, currMethod).getName();
             computation.append(expr.getComputation());
-            Type returnType = table.getReturnType(method);
-            if (className.equals(table.getClassName()) && returnType != null) ollirReturnType = OptUtils.toOllirType(returnType);
+            var signature = getOllirSignature(method);
+            if (className.equals(table.getClassName()) && signature != null) ollirReturnType = signature.returnType();
             else ollirReturnType = "." + object.get("name");
 
             code.append(INVOKEVIRTUAL).append("(").append(expr.getCode());
@@ -254,7 +263,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
             else {
                 // current class object
                 if (objectType.getName().equals(table.getClassName())) {
-                    ollirReturnType = OptUtils.toOllirType(table.getReturnType(method));
+                    ollirReturnType = getOllirReturnType(method);
                 }
 
                 // external object
@@ -279,10 +288,43 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         return new OllirExprResult(code.toString(), computation);
     }
 
+    /**
+     * @return the OLLIR return type of a method of the class
+     */
+    private String getOllirReturnType(String method) {
+        var signature = getOllirSignature(method);
+        return signature != null ? signature.returnType() : OptUtils.toOllirType(table.getReturnType(method));
+    }
+
+    /**
+     * @return the OLLIR types of a method of the class, worked out on its first call, or null if there is no such method
+     */
+    private OllirSignature getOllirSignature(String method) {
+        var cached = ollirSignatures.get(method);
+        if (cached != null) {
+            return cached;
+        }
+
+        var signature = TypeUtils.getMethodSignature(method, table);
+        if (signature == null) {
+            return null;
+        }
+
+        var ollirSignature = new OllirSignature(OptUtils.toOllirType(signature.returnType()),
+                signature.parameters().stream().map(param -> OptUtils.toOllirType(param.getType())).toList());
+        ollirSignatures.put(method, ollirSignature);
+        return ollirSignature;
+    }
+
     private OllirExprResult buildArguments(List<JmmNode> arguments, String method, Type objectType) {
         StringBuilder argCode = new StringBuilder();
         StringBuilder computation = new StringBuilder();
 
+        // the arguments of a call to a method of the class take the types of its parameters
+        var signature = objectType.getName().equals(table.getClassName())
+                ? getOllirSignature(method)
+                : null;
+
         for (int i = 0; i < arguments.size(); i++) {
             JmmNode argument = arguments.get(i);
 
@@ -292,14 +334,11 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
             computation.append(argumentCode.getComputation());
 
             if(argument.getKind().equals("MethodExpr")) {
-                String temp = OptUtils.getTemp();
+                String temp = context.getTemp();
                 String invoke = argumentCode.getCode();
-                Type argumentType = TypeUtils.getExprType(argument, table, currMethod);
-                String ollirType = OptUtils.toOllirType(argumentType);
-                if (objectType.getName().equals(table.getClassName()) && table.getMethods().contains(method)) {
-                    argumentType = table.getParameters(method).get(i).getType();
-                    ollirType = OptUtils.toOllirType(argumentType);
-                }
+                String ollirType = signature != null
+                        ? signature.parameterTypes().get(i)
+                        : OptUtils.toOllirType(TypeUtils.getExprType(argument, table, currMethod));
 
                 if (ollirType.equals(".array.i32")) {
                     invoke = invoke.substring(0, invoke.lastIndexOf("."));
@@ -313,7 +352,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
                 argCode.append(", ").append(temp).append(ollirType);
             }
             else if (argument.getKind().equals("NewArrayExpr")) {
-                String temp = OptUtils.getTemp();
+                String temp = context.getTemp();
                 String invoke = argumentCode.getCode();
                 computation.append(temp).append(".array.i32").append(SPACE).append(ASSIGN)
                         .append(".array.i32").append(SPACE).append(invoke).append(END_STMT);
@@ -340,7 +379,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         Type resType = TypeUtils.getExprType(node, table, currMethod);
         assert resType != null;
         String resOllirType = OptUtils.toOllirType(resType);
-        String code = OptUtils.getTemp() + resOllirType;
+        String code = context.getTemp() + resOllirType;
 
         computation.append(code).append(SPACE)
                 .append(ASSIGN).append(resOllirType)
@@ -367,7 +406,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
         int nrElements = node.getChildren().size();
 
-        String temp = OptUtils.getTemp() + ".array.i32";
+        String temp = context.getTemp() + ".array.i32";
         computation.append(temp).append(SPACE).append(ASSIGN).append(".array.i32 ")
                 .append("new(array,").append(nrElements).append(".i32).array.i32;\n");
 
@@ -392,7 +431,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         Type resType = TypeUtils.getExprType(node, table, currMethod);
         assert resType != null;
         String resOllirType = OptUtils.toOllirType(resType);
-        String code = OptUtils.getTemp() + resOllirType;
+        String code = context.getTemp() + resOllirType;
 
         computation.append(code).append(SPACE)
                 .append(ASSIGN).append(resOllirType)
@@ -420,11 +459,11 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         computation.append(expr.getComputation());
 
         if (node.getJmmChild(1).getKind().equals("MethodExpr")) {
-            String temp = OptUtils.getTemp() + resOllirType;
+            String temp = context.getTemp() + resOllirType;
             computation.append(temp).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE).append(expr.getCode());
             code.append(temp).append("]").append(resOllirType);
         } else if (node.getJmmChild(1).getKind().equals("ArrayElemExpr")) {
-            String temp = OptUtils.getTemp() + resOllirType;
+            String temp = context.getTemp() + resOllirType;
             computation.append(temp).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE).append(expr.getCode()).append(END_STMT);
             code.append(temp).append("]").append(resOllirType);
         } else {
@@ -434,7 +473,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         JmmNode parent= node.getParent();
         while (parent.getKind().equals("ParensExpr")) parent = parent.getParent();
         if (parent.getKind().equals("MethodExpr") || node.getParent().getKind().equals("ArrayElemExpr")) {
-            String temp = OptUtils.getTemp() + resOllirType;
+            String temp = context.getTemp() + resOllirType;
             computation.append(temp).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE).append(code.toString()).append(";\n");
             code = new StringBuilder();
             code.append(temp);
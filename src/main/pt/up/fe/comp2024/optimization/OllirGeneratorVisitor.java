@@ -1,9 +1,13 @@
 package pt.up.fe.comp2024.optimization;
 
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.utils.FragmentCache;
+import pt.up.fe.comp2024.utils.HashUtils;
 
 import java.util.List;
 
@@ -20,12 +24,25 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private final String R_BRACKET = "}\n";
 
     private final SymbolTable table;
+    private final OllirContext context;
     private final OllirStmtGeneratorVisitor stmtVisitor;
 
+    private final FragmentCache methodCache;
+    private String tableSignature;
+
 
     public OllirGeneratorVisitor(SymbolTable table) {
+        this(table, null);
+    }
+
+    /**
+     * @param methodCache cache of the code of each method, or null to generate every method
+     */
+    public OllirGeneratorVisitor(SymbolTable table, FragmentCache methodCache) {
         this.table = table;
-        stmtVisitor = new OllirStmtGeneratorVisitor(table);
+        this.context = new OllirContext();
+        this.stmtVisitor = new OllirStmtGeneratorVisitor(table, context);
+        this.methodCache = methodCache;
     }
 
 
@@ -62,6 +79,22 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private String visitMethodDecl(JmmNode node, Void unused) {
 
+        if (methodCache == null) {
+            return generateMethodDecl(node);
+        }
+
+        // the code of a method only depends on its own subtree and on the declarations in the symbol table
+        if (tableSignature == null) {
+            tableSignature = getTableSignature();
+        }
+        String key = HashUtils.sha256(tableSignature, node.toTree());
+
+        return methodCache.get(key, () -> generateMethodDecl(node));
+    }
+
+    private String generateMethodDecl(JmmNode node) {
+
+        context.reset();
         stmtVisitor.setCurrMethod(node.get("name"));
 
         StringBuilder code = new StringBuilder(".method ");
@@ -114,6 +147,47 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
 
+    /**
+     * Everything in the symbol table that the code of a method may depend on, including the attributes added
+     * to the types during the analysis.
+     */
+    private String getTableSignature() {
+        StringBuilder signature = new StringBuilder();
+
+        signature.append(table.getClassName()).append(" extends ").append(table.getSuper()).append(NL);
+        signature.append("imports ").append(table.getImports()).append(NL);
+        table.getFields().forEach(field -> appendSymbol(signature.append("field "), field));
+
+        for (String method : table.getMethods()) {
+            signature.append("method ").append(method).append(" ");
+            appendType(signature, table.getReturnType(method));
+            signature.append(NL);
+            table.getParameters(method).forEach(param -> appendSymbol(signature.append("param "), param));
+            table.getLocalVariables(method).forEach(local -> appendSymbol(signature.append("local "), local));
+        }
+
+        return signature.toString();
+    }
+
+    private void appendSymbol(StringBuilder signature, Symbol symbol) {
+        signature.append(symbol.getName()).append(" ");
+        appendType(signature, symbol.getType());
+        signature.append(NL);
+    }
+
+    private void appendType(StringBuilder signature, Type type) {
+        if (type == null) {
+            signature.append("null");
+            return;
+        }
+
+        signature.append(type.getName()).append(type.isArray() ? "[]" : "");
+        type.getAttributes().stream()
+                .sorted()
+                .forEach(attribute -> signature.append(" ").append(attribute).append("=")
+                        .append(type.getObject(attribute)));
+    }
+
     private String visitClass(JmmNode node, Void unused) {
 
         StringBuilder code = new StringBuilder();
@@ -20,12 +20,14 @@ public class OllirStmtGeneratorVisitor extends AJmmVisitor<Void, String> {
     private static final String ASSIGN = ":=";
     private final String END_STMT = ";\n";
     private final SymbolTable table;
+    private final OllirContext context;
     private final OllirExprGeneratorVisitor exprVisitor;
     private String currMethod;
 
-    public OllirStmtGeneratorVisitor(SymbolTable table) {
+    public OllirStmtGeneratorVisitor(SymbolTable table, OllirContext context) {
         this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.context = context;
+        exprVisitor = new OllirExprGeneratorVisitor(table, context);
     }
 
     public void setCurrMethod(String methodName) {
@@ -63,7 +65,7 @@ public class OllirStmtGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         if (exprNode.getKind().equals("MethodExpr")) {
             Type type = TypeUtils.getExprType(exprNode, table, currMethod);
-            String newTmp = OptUtils.getTemp() + varOllirType;
+            String newTmp = context.getTemp() + varOllirType;
 
             // static method call from imported class
             if (type.hasAttribute("isExternal")) {
@@ -78,7 +80,7 @@ public class OllirStmtGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         if (exprNode.getKind().equals("NewArrayExpr")) {
             Type type = TypeUtils.getExprType(exprNode, table, currMethod);
-            String newTmp = OptUtils.getTemp() + varOllirType;
+            String newTmp = context.getTemp() + varOllirType;
 
             code.append(newTmp)
                     .append(SPACE).append(ASSIGN).append(varOllirType).append(SPACE)
@@ -86,11 +88,18 @@ public class OllirStmtGeneratorVisitor extends AJmmVisitor<Void, String> {
             exprCode = newTmp;
         }
 
-        boolean isField = table.getFields().stream().anyMatch(field -> field.getName().equals(variable));
-        boolean isLocal = table.getLocalVariables(currMethod).stream().anyMatch(local -> local.getName().equals(variable));
-        boolean isParam = table.getParameters(currMethod).stream().anyMatch(param -> param.getName().equals(variable));
+        var resolved = TypeUtils.resolveVariable(variable, table, currMethod);
+
+        if (resolved != null && resolved.isField())  {
+            // putfield only takes simple operands, operations and array accesses go to a temporary first
+            if (exprCode.contains(SPACE) || exprCode.contains("[")) {
+                String newTmp = context.getTemp() + varOllirType;
+                code.append(newTmp)
+                        .append(SPACE).append(ASSIGN).append(varOllirType).append(SPACE)
+                        .append(exprCode).append(END_STMT);
+                exprCode = newTmp;
+            }
 
-        if (isField && !(isLocal || isParam))  {
             code.append("putfield(this.").append(table.getClassName()).append(", ").append(variable)
                     .append(varOllirType).append(", ").append(exprCode).append(").V");
         } else {
@@ -121,7 +130,7 @@ public class OllirStmtGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         if (exprNode.getKind().equals("MethodExpr")) {
             Type type = TypeUtils.getExprType(exprNode, table, currMethod);
-            String newTmp = OptUtils.getTemp() + varOllirType;
+            String newTmp = context.getTemp() + varOllirType;
 
             // static method call from imported class
             if (type.hasAttribute("isExternal")) {
@@ -135,7 +144,7 @@ public class OllirStmtGeneratorVisitor extends AJmmVisitor<Void, String> {
         }
 
         else if (exprNode.getKind().equals("NewArrayExpr")) {
-            String newTmp = OptUtils.getTemp() + ".array.i32";
+            String newTmp = context.getTemp() + ".array.i32";
             code.append(newTmp)
                 .append(SPACE).append(ASSIGN).append(".array.32").append(SPACE)
                 .append(exprCode).append(END_STMT);
@@ -160,8 +169,8 @@ public class OllirStmtGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         var condition = exprVisitor.visit(node.getJmmChild(0));
 
-        String ifNumber = OptUtils.getIf();
-        String endIfNumber = OptUtils.getEndIf();
+        String ifNumber = context.getIf();
+        String endIfNumber = context.getEndIf();
 
         code.append(condition.getComputation());
         code.append("if (").append(condition.getCode()).append(") ").append("goto ").append(ifNumber).append(END_STMT);
@@ -193,9 +202,9 @@ public class OllirStmtGeneratorVisitor extends AJmmVisitor<Void, String> {
     private String visitWhileStmt(JmmNode node, Void unused) {
         StringBuilder code = new StringBuilder();
 
-        String whileCond = OptUtils.getWhileCond();
-        String whileLoop = OptUtils.getWhileLoop();
-        String whileEnd = OptUtils.getWhileEnd();
+        String whileCond = context.getWhileCond();
+        String whileLoop = context.getWhileLoop();
+        String whileEnd = context.getWhileEnd();
 
         code.append(whileCond).append(":\n");
 
@@ -228,15 +237,16 @@ public class OllirStmtGeneratorVisitor extends AJmmVisitor<Void, String> {
         var rhs = exprVisitor.visit(right);
 
         code.append(lhs.getComputation());
+        code.append(rhs.getComputation());
         String leftCode = lhs.getCode();
         String rightCode = rhs.getCode();
 
         while (left.getKind().equals("ParensExpr")) left = left.getChild(0);
-        while (right.getKind().equals("ParensExpr")) right = right.getChild(1);
+        while (right.getKind().equals("ParensExpr")) right = right.getChild(0);
 
         if (left.getKind().equals("MethodExpr")) {
             Type type = TypeUtils.getExprType(left, table, currMethod);
-            String newTmp = OptUtils.getTemp() + varOllirType;
+            String newTmp = context.getTemp() + varOllirType;
 
             // static method call from imported class
             if (type.hasAttribute("isExternal")) {
@@ -251,7 +261,7 @@ public class OllirStmtGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         if (right.getKind().equals("MethodExpr")) {
             Type type = TypeUtils.getExprType(right, table, currMethod);
-            String newTmp = OptUtils.getTemp() + varOllirType;
+            String newTmp = context.getTemp() + varOllirType;
 
             // static method call from imported class
             if (type.hasAttribute("isExternal")) {
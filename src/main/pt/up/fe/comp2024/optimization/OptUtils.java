@@ -18,53 +18,6 @@ import static pt.up.fe.comp2024.ast.Kind.TYPES;
 //import static pt.up.fe.comp2024.ast.Kind.TYPE;
 
 public class OptUtils {
-    private static int tempNumber = -1;
-    private static int ifNumber = 0;
-    private static int whileNumber = 0;
-    private static int varArgsNumber = 0;
-
-    public static String getTemp() {
-        return getTemp("tmp");
-    }
-
-    public static String getTemp(String prefix) {
-        return prefix + getNextTempNum();
-    }
-
-    public static int getNextTempNum() {
-        tempNumber += 1;
-        return tempNumber;
-    }
-
-    public static int getNextIfNum() {
-        ifNumber += 1;
-        return ifNumber;
-    }
-
-    public static String getIf() {
-        return "if" + getNextIfNum();
-    }
-
-    public static String getEndIf() {
-        return "endif" + ifNumber;
-    }
-
-    public static int getNextWhileNum() {
-        whileNumber += 1;
-        return whileNumber;
-    }
-
-    public static String getWhileCond() {
-        return "whileCond" + getNextWhileNum();
-    }
-
-    public static String getWhileLoop() {
-        return "whileLoop" + whileNumber;
-    }
-
-    public static String getWhileEnd() {
-        return "whileEnd" + whileNumber;
-    }
 
     public static String toOllirBool(String boolValue) {
         if (Objects.equals(boolValue, "true")) return "1";
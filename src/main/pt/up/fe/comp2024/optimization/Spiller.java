@@ -0,0 +1,200 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.specs.util.utilities.StringLines;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Moves local variables out of registers and into memory, for when a method needs more registers than allowed.
+ * <p>
+ * The spilled variables of a method are kept in an int array created when the method starts, one position each. The
+ * OLLIR code is rewritten so that every instruction that reads a spilled variable first loads it from the array into
+ * a new variable, and every instruction that writes one stores the value back right after. These new variables are
+ * only live for one instruction, so they interfere with few others and are never spilled themselves.
+ * <p>
+ * Only int and boolean variables are spilled. The same instance is used while the allocation is retried, so that the
+ * variables spilled by an earlier attempt keep their positions.
+ */
+public class Spiller {
+
+    private static final String SPILL_PREFIX = "spill";
+
+    private static final String FIELD_MASK = "#field";
+
+    private static final Pattern FIELD_ACCESS = Pattern.compile("(?:getfield|putfield)\\([^,]*,\\s*([^,)]+)");
+
+    private final Map<String, MethodSpills> methods = new HashMap<>();
+
+    /**
+     * The cost of spilling each local variable of the method, in the numbering of the {@link Liveness} analysis:
+     * its weighted {@link UseCounts}. Variables that cannot be spilled cost {@link Double#POSITIVE_INFINITY}.
+     */
+    public double[] getCosts(Method method, UseCounts useCounts, Liveness liveness) {
+        var spills = methods.get(method.getMethodName());
+        var variables = liveness.getVariables();
+        double[] costs = new double[variables.size()];
+
+        for (int i = 0; i < variables.size(); i++) {
+            String name = variables.get(i);
+            boolean created = spills != null && spills.created.contains(name);
+            if (created || !canSpill(method.getVarTable().get(name))) {
+                costs[i] = Double.POSITIVE_INFINITY;
+            } else {
+                costs[i] = useCounts.getWeight(i);
+            }
+        }
+
+        return costs;
+    }
+
+    public void spill(Method method, Collection<String> variables) {
+        var spills = methods.computeIfAbsent(method.getMethodName(), name -> new MethodSpills());
+        var varTable = method.getVarTable();
+
+        spills.taken.addAll(varTable.keySet());
+        if (spills.array == null) {
+            spills.array = spills.newName();
+        }
+
+        for (String variable : variables) {
+            var elementType = varTable.get(variable).getVarType().getTypeOfElement();
+            String type = elementType == ElementType.BOOLEAN ? ".bool" : ".i32";
+            spills.slots.put(variable, new Slot(spills.slots.size(), type));
+        }
+    }
+
+    public int getSpilledCount() {
+        return methods.values().stream().mapToInt(spills -> spills.slots.size()).sum();
+    }
+
+    /**
+     * @return the given OLLIR code, with the variables spilled so far kept in memory
+     */
+    public String rewrite(String ollirCode) {
+        StringBuilder code = new StringBuilder();
+        MethodSpills current = null;
+        boolean arrayCreated = false;
+
+        for (String line : StringLines.getLines(ollirCode)) {
+            String trimmed = line.strip();
+
+            if (trimmed.startsWith(".method ")) {
+                current = methods.get(getMethodName(trimmed));
+                arrayCreated = false;
+                code.append(line).append("\n");
+                if (current != null) {
+                    code.append(current.createArray()).append("\n");
+                    arrayCreated = true;
+                }
+                continue;
+            }
+
+            if (current == null || trimmed.isEmpty() || trimmed.endsWith(":") || trimmed.equals("}")) {
+                if (trimmed.equals("}")) {
+                    current = null;
+                }
+                code.append(line).append("\n");
+                continue;
+            }
+
+            // the array created by an earlier rewrite is replaced by the one above, which has room for every slot
+            if (arrayCreated && trimmed.startsWith(current.array + ".array.i32 :=.array.i32 new(array")) {
+                arrayCreated = false;
+                continue;
+            }
+            arrayCreated = false;
+
+            current.rewrite(trimmed, code);
+        }
+
+        return code.toString();
+    }
+
+    private static boolean canSpill(Descriptor descriptor) {
+        var type = descriptor.getVarType().getTypeOfElement();
+        return type == ElementType.INT32 || type == ElementType.BOOLEAN;
+    }
+
+    private static String getMethodName(String declaration) {
+        String beforeParams = declaration.substring(0, declaration.indexOf('(')).strip();
+        return beforeParams.substring(beforeParams.lastIndexOf(' ') + 1);
+    }
+
+    private record Slot(int index, String type) {
+    }
+
+    private static class MethodSpills {
+
+        private final Map<String, Slot> slots = new LinkedHashMap<>();
+        private final Set<String> created = new HashSet<>();
+        private final Set<String> taken = new HashSet<>();
+        private String array;
+        private int lastName;
+
+        /**
+         * @return a variable name that is not used by the method
+         */
+        private String newName() {
+            String name;
+            do {
+                name = SPILL_PREFIX + lastName++;
+            } while (taken.contains(name) || created.contains(name));
+
+            created.add(name);
+            return name;
+        }
+
+        private String createArray() {
+            return array + ".array.i32 :=.array.i32 new(array, " + slots.size() + ".i32).array.i32;";
+        }
+
+        private void rewrite(String instruction, StringBuilder code) {
+            // field names look like variables, so they are hidden while the variables are replaced
+            List<String> fields = new ArrayList<>();
+            Matcher fieldAccess = FIELD_ACCESS.matcher(instruction);
+            StringBuilder masked = new StringBuilder();
+            int end = 0;
+            while (fieldAccess.find()) {
+                masked.append(instruction, end, fieldAccess.start(1)).append(FIELD_MASK).append(fields.size());
+                fields.add(fieldAccess.group(1));
+                end = fieldAccess.end(1);
+            }
+            String rewritten = masked.append(instruction.substring(end)).toString();
+
+            List<String> stores = new ArrayList<>();
+            for (var entry : slots.entrySet()) {
+                String type = entry.getValue().type();
+                String variable = entry.getKey() + type;
+                String element = array + "[" + entry.getValue().index() + ".i32].i32";
+
+                // writing the variable: write a new one instead, and store it right after
+                if (rewritten.startsWith(variable + " ")) {
+                    String temp = newName() + type;
+                    rewritten = temp + rewritten.substring(variable.length());
+                    stores.add(element + " :=.i32 " + temp + ";");
+                }
+
+                // reading the variable: load it into a new one right before
+                Matcher use = Pattern.compile("(?<![\\w$.])" + Pattern.quote(variable) + "(?![\\w$.])")
+                        .matcher(rewritten);
+                if (use.find()) {
+                    String temp = newName() + type;
+                    code.append(temp).append(" :=").append(type).append(" ").append(element).append(";\n");
+                    rewritten = use.replaceAll(Matcher.quoteReplacement(temp));
+                }
+            }
+
+            for (int i = fields.size() - 1; i >= 0; i--) {
+                rewritten = rewritten.replace(FIELD_MASK + i, fields.get(i));
+            }
+
+            code.append(rewritten).append("\n");
+            for (String store : stores) {
+                code.append(store).append("\n");
+            }
+        }
+    }
+}
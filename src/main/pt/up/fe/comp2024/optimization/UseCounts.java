@@ -0,0 +1,77 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.NodeType;
+import pt.up.fe.comp2024.utils.BitSets;
+
+import java.util.Arrays;
+
+/**
+ * How often each local variable of a method is read or written, in the numbering of the {@link Liveness} analysis.
+ * <p>
+ * Counts are static: the number of instructions that read or write the variable. The weighted counts estimate how
+ * often those instructions run, counting an instruction inside a loop as ten of the ones outside it.
+ */
+public class UseCounts {
+
+    private final int[] counts;
+    private final double[] weights;
+
+    private UseCounts(int variables) {
+        this.counts = new int[variables];
+        this.weights = new double[variables];
+    }
+
+    public static UseCounts analyse(Method method, Liveness liveness) {
+        int variables = liveness.getVariables().size();
+        UseCounts useCounts = new UseCounts(variables);
+
+        int[] depths = getLoopDepths(method);
+        long[] accessed = BitSets.create(variables);
+        for (int i = 0; i < liveness.getInstructionCount(); i++) {
+            Arrays.fill(accessed, 0);
+            BitSets.addAll(accessed, liveness.getDefs(i));
+            BitSets.addAll(accessed, liveness.getUses(i));
+
+            double weight = Math.pow(10, depths[i]);
+            for (int variable = BitSets.next(accessed, 0); variable != -1; variable = BitSets.next(accessed, variable + 1)) {
+                useCounts.counts[variable]++;
+                useCounts.weights[variable] += weight;
+            }
+        }
+
+        return useCounts;
+    }
+
+    public int getCount(int variable) {
+        return counts[variable];
+    }
+
+    public double getWeight(int variable) {
+        return weights[variable];
+    }
+
+    /**
+     * The number of loops around each instruction. The code of a loop is contiguous, so a jump back from an
+     * instruction to an earlier one marks everything in between as one loop.
+     */
+    private static int[] getLoopDepths(Method method) {
+        var instructions = method.getInstructions();
+        int[] depths = new int[instructions.size()];
+
+        for (int i = 0; i < instructions.size(); i++) {
+            for (var successor : instructions.get(i).getSuccessors()) {
+                // the CFG numbers the instructions from 1, in the order of the list
+                int target = successor.getId() - 1;
+                if (successor.getNodeType() != NodeType.INSTRUCTION || target > i) {
+                    continue;
+                }
+                for (int j = target; j <= i; j++) {
+                    depths[j]++;
+                }
+            }
+        }
+
+        return depths;
+    }
+}
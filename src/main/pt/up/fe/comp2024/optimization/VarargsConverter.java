@@ -38,7 +38,7 @@ public class VarargsConverter extends AJmmVisitor<SymbolTable, Void>  {
         String method = methodExpr.get("method");
 
         if (hasVarargs(method, table)) {
-            var formalParams = table.getParameters(method);
+            var formalParams = TypeUtils.getMethodSignature(method, table).parameters();
             var varargParams = methodExpr.getChildren(); varargParams.remove(0);
             if (formalParams.size() > 1) {
                 varargParams.subList(0, formalParams.size() - 1).clear();
@@ -65,17 +65,8 @@ public class VarargsConverter extends AJmmVisitor<SymbolTable, Void>  {
     }
 
     boolean hasVarargs(String method, SymbolTable table) {
-
-        if (!table.getMethods().contains(method)) {
-            return false;
-        }
-
-        var parameters = table.getParameters(method);
-
-        if (parameters.isEmpty()) return false;
-
-        Type lastParameter = parameters.get(parameters.size() - 1).getType();
-        return lastParameter.hasAttribute("isVararg");
+        var signature = TypeUtils.getMethodSignature(method, table);
+        return signature != null && signature.isVararg();
     }
 
     private Void visitVarargType(JmmNode varargType, SymbolTable table) {
@@ -7,6 +7,7 @@ import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.specs.util.SpecsSystem;
 
 import java.util.Collections;
 import java.util.Map;
@@ -26,6 +27,12 @@ import java.util.Map;
 
 public class JmmParserImpl implements JmmParser {
 
+    static {
+        // AntlrParser finds the starting rule through a method cache that is not thread-safe, fill it before any
+        // parser runs so that concurrent parses only read from it
+        SpecsSystem.getMethod(pt.up.fe.comp2024.JavammParser.class, "program");
+    }
+
     @Override
     public String getDefaultRule() {
         return "program";
@@ -0,0 +1,250 @@
+package pt.up.fe.comp2024.profiling;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Records the wall time, the allocated bytes and the amount of work (AST nodes, instructions, ...) of each stage of
+ * the compiler.
+ * <p>
+ * A profiler is started for the current thread with {@link #start()}; until {@link #stop()} is called, every
+ * {@link #measure(String, Supplier)} in that thread is recorded. Stages measured inside other stages are nested under
+ * them, and stages measured several times under the same parent (e.g., liveness of each method) are added together.
+ * When no profiler is running, measuring a stage only runs it.
+ */
+public class Profiler {
+
+    private static final ThreadLocal<Profiler> CURRENT = new ThreadLocal<>();
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = getThreadBean();
+
+    private static final String SEPARATOR = "/";
+
+    /**
+     * Sections by path, in the order they were first entered.
+     */
+    private final Map<String, Section> sections;
+    private final Deque<Section> openSections;
+
+    public Profiler() {
+        this.sections = new LinkedHashMap<>();
+        this.openSections = new ArrayDeque<>();
+    }
+
+    /**
+     * Starts recording the stages executed by the current thread.
+     *
+     * @return the new profiler
+     */
+    public static Profiler start() {
+        var profiler = new Profiler();
+        CURRENT.set(profiler);
+        return profiler;
+    }
+
+    /**
+     * Stops recording the stages executed by the current thread.
+     *
+     * @return the profiler that was recording, or null if there was none
+     */
+    public static Profiler stop() {
+        var profiler = CURRENT.get();
+        CURRENT.remove();
+        return profiler;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    public static <T> T measure(String stage, Supplier<T> work) {
+        var profiler = CURRENT.get();
+        if (profiler == null) {
+            return work.get();
+        }
+
+        return profiler.record(stage, work);
+    }
+
+    public static void measure(String stage, Runnable work) {
+        measure(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Adds to the amount of work done by the innermost stage being measured.
+     *
+     * @param amount how much work was done
+     * @param unit   what was processed, e.g., "nodes" or "instructions"
+     */
+    public static void count(long amount, String unit) {
+        var profiler = CURRENT.get();
+        if (profiler == null || profiler.openSections.isEmpty()) {
+            return;
+        }
+
+        var section = profiler.openSections.peek();
+        section.count += amount;
+        section.unit = unit;
+    }
+
+    private <T> T record(String stage, Supplier<T> work) {
+        var parent = openSections.peek();
+        String path = parent == null ? stage : parent.path + SEPARATOR + stage;
+        var section = sections.computeIfAbsent(path, key -> new Section(key, stage, openSections.size()));
+
+        openSections.push(section);
+        long allocatedStart = getAllocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            section.wallNanos += System.nanoTime() - start;
+            section.allocatedBytes += getAllocatedBytes() - allocatedStart;
+            section.calls++;
+            openSections.pop();
+        }
+    }
+
+    /**
+     * Adds the measurements of another profiler to this one, e.g., to sum the profiles of several compiled files.
+     */
+    public synchronized void merge(Profiler other) {
+        for (var otherSection : other.sections.values()) {
+            var section = sections.computeIfAbsent(otherSection.path,
+                    key -> new Section(key, otherSection.name, otherSection.depth));
+            section.calls += otherSection.calls;
+            section.wallNanos += otherSection.wallNanos;
+            section.allocatedBytes += otherSection.allocatedBytes;
+            section.count += otherSection.count;
+            if (otherSection.unit != null) {
+                section.unit = otherSection.unit;
+            }
+        }
+    }
+
+    public List<Section> getSections() {
+        return new ArrayList<>(sections.values());
+    }
+
+    public String toTable() {
+        var table = new StringBuilder();
+        table.append(String.format("%-40s %7s %12s %14s %20s%n", "Stage", "Calls", "Time (ms)", "Alloc (KB)", "Work"));
+
+        for (var section : sections.values()) {
+            String name = "  ".repeat(section.depth) + section.name;
+            String work = section.unit == null ? "" : section.count + " " + section.unit;
+            table.append(String.format("%-40s %7d %12.3f %14.1f %20s%n", name, section.calls,
+                    section.wallNanos / 1_000_000.0, section.allocatedBytes / 1024.0, work));
+        }
+
+        return table.toString();
+    }
+
+    public JsonObject toJson() {
+        var stages = new JsonArray();
+        for (var section : sections.values()) {
+            var json = new JsonObject();
+            json.addProperty("stage", section.path);
+            json.addProperty("depth", section.depth);
+            json.addProperty("calls", section.calls);
+            json.addProperty("wallNanos", section.wallNanos);
+            json.addProperty("allocatedBytes", section.allocatedBytes);
+            json.addProperty("count", section.count);
+            json.addProperty("unit", section.unit);
+            stages.add(json);
+        }
+
+        var profile = new JsonObject();
+        profile.add("stages", stages);
+        return profile;
+    }
+
+    public String toJsonString() {
+        return new GsonBuilder().setPrettyPrinting().create().toJson(toJson());
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, or 0 if the JVM cannot measure them
+     */
+    private static long getAllocatedBytes() {
+        if (THREAD_BEAN == null) {
+            return 0;
+        }
+
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        var bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+            return sunBean;
+        }
+
+        return null;
+    }
+
+    public static class Section {
+
+        private final String path;
+        private final String name;
+        private final int depth;
+
+        private long calls;
+        private long wallNanos;
+        private long allocatedBytes;
+        private long count;
+        private String unit;
+
+        private Section(String path, String name, int depth) {
+            this.path = path;
+            this.name = name;
+            this.depth = depth;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+    }
+}
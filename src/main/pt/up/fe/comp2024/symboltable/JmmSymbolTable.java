@@ -3,6 +3,7 @@ package pt.up.fe.comp2024.symboltable;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.ast.ExprTypes;
 import pt.up.fe.comp2024.ast.TypeUtils;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
@@ -23,6 +24,14 @@ public class JmmSymbolTable implements SymbolTable {
     private final String superclass;
     private final List<Symbol> fields;
 
+    // the locals and parameters of each method, and the fields, by name
+    private final Map<String, Map<String, ResolvedSymbol>> variables;
+    private final Map<String, ResolvedSymbol> fieldsByName;
+
+    private final Map<String, MethodSignature> signatures;
+
+    private final ExprTypes exprTypes = new ExprTypes();
+
     public JmmSymbolTable(String className,
                           List<String> imports,
                           List<String> methods,
@@ -30,7 +39,10 @@ public class JmmSymbolTable implements SymbolTable {
                           Map<String, List<Symbol>> params,
                           Map<String, List<Symbol>> locals,
                           String superclass,
-                          List<Symbol> fields
+                          List<Symbol> fields,
+                          Map<String, Map<String, ResolvedSymbol>> variables,
+                          Map<String, ResolvedSymbol> fieldsByName,
+                          Map<String, MethodSignature> signatures
     ){
         this.className = className;
         this.imports = imports;
@@ -40,6 +52,9 @@ public class JmmSymbolTable implements SymbolTable {
         this.locals = locals;
         this.superclass = superclass;
         this.fields = fields;
+        this.variables = variables;
+        this.fieldsByName = fieldsByName;
+        this.signatures = signatures;
     }
 
     @Override
@@ -85,4 +100,41 @@ public class JmmSymbolTable implements SymbolTable {
         return Collections.unmodifiableList(locals.get(methodSignature));
     }
 
+    /**
+     * @return the variable the name refers to in the method, the first local, parameter or field with that name, in
+     * this order, or null if there is none
+     */
+    public ResolvedSymbol resolve(String methodSignature, String name) {
+        var methodVariables = variables.get(methodSignature);
+        if (methodVariables != null) {
+            var variable = methodVariables.get(name);
+            if (variable != null) {
+                return variable;
+            }
+        }
+
+        return fieldsByName.get(name);
+    }
+
+    /**
+     * @return the first field with the name, or null if there is none
+     */
+    public ResolvedSymbol getField(String name) {
+        return fieldsByName.get(name);
+    }
+
+    /**
+     * @return the signature of the method of the class with the name, or null if the class has no such method
+     */
+    public MethodSignature getSignature(String methodName) {
+        return signatures.get(methodName);
+    }
+
+    /**
+     * @return the types of the expressions of the program this table was built from
+     */
+    public ExprTypes getExprTypes() {
+        return exprTypes;
+    }
+
 }
@@ -31,7 +31,35 @@ public class JmmSymbolTableBuilder {
         Map<String, List<Symbol>> params = buildParams(classDecl);
         Map<String, List<Symbol>> locals = buildLocals(classDecl);
 
-        return new JmmSymbolTable(className, imports, methods, returnTypes, params, locals, superclass, fields);
+        Map<String, Map<String, ResolvedSymbol>> variables = new HashMap<>();
+        for (String method : locals.keySet()) {
+            Map<String, ResolvedSymbol> methodVariables = new HashMap<>();
+            index(methodVariables, locals.get(method), ResolvedSymbol.Scope.LOCAL);
+            index(methodVariables, params.get(method), ResolvedSymbol.Scope.PARAM);
+            variables.put(method, methodVariables);
+        }
+
+        Map<String, ResolvedSymbol> fieldsByName = new HashMap<>();
+        index(fieldsByName, fields, ResolvedSymbol.Scope.FIELD);
+
+        Map<String, MethodSignature> signatures = new HashMap<>();
+        for (String method : returnTypes.keySet()) {
+            signatures.put(method, MethodSignature.of(method, returnTypes.get(method), params.get(method)));
+        }
+
+        return new JmmSymbolTable(className, imports, methods, returnTypes, params, locals, superclass, fields,
+                variables, fieldsByName, signatures);
+    }
+
+    /**
+     * Adds the symbols that are not hidden by a symbol with the same name already in the index, as a lookup that
+     * goes through the symbols in order finds the first one.
+     */
+    private static void index(Map<String, ResolvedSymbol> index, List<Symbol> symbols, ResolvedSymbol.Scope scope) {
+        for (int i = 0; i < symbols.size(); i++) {
+            var symbol = symbols.get(i);
+            index.putIfAbsent(symbol.getName(), new ResolvedSymbol(symbol, scope, i));
+        }
     }
 
     private static List<String> buildImports(JmmNode root) {
@@ -0,0 +1,27 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.util.List;
+
+/**
+ * The signature of a method of the class, with whether it takes varargs worked out once.
+ * <p>
+ * Methods can't be overloaded, so a method is found by its name alone.
+ *
+ * @param isVararg true if the last parameter is a vararg
+ */
+public record MethodSignature(String name, Type returnType, List<Symbol> parameters, boolean isVararg) {
+
+    public static MethodSignature of(String name, Type returnType, List<Symbol> parameters) {
+        boolean isVararg = !parameters.isEmpty()
+                && parameters.get(parameters.size() - 1).getType().hasAttribute("isVararg");
+
+        return new MethodSignature(name, returnType, parameters, isVararg);
+    }
+
+    public int getArity() {
+        return parameters.size();
+    }
+}
@@ -0,0 +1,31 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+/**
+ * A variable a name refers to inside a method, with where it was declared.
+ *
+ * @param index the position of the variable among the locals, the parameters or the fields of its scope; for a
+ *              parameter, its position in the signature of the method
+ */
+public record ResolvedSymbol(Symbol symbol, Scope scope, int index) {
+
+    public enum Scope {
+        LOCAL,
+        PARAM,
+        FIELD
+    }
+
+    public String getName() {
+        return symbol.getName();
+    }
+
+    public Type getType() {
+        return symbol.getType();
+    }
+
+    public boolean isField() {
+        return scope == Scope.FIELD;
+    }
+}
@@ -0,0 +1,68 @@
+package pt.up.fe.comp2024.utils;
+
+/**
+ * Operations over sets of small ints stored as arrays of longs, one bit per element.
+ * <p>
+ * Used by the dataflow analyses, which keep one set per instruction and must not allocate while iterating.
+ */
+public class BitSets {
+
+    private static final int WORD_BITS = 64;
+
+    /**
+     * @return an empty set that can hold the elements 0 to size - 1
+     */
+    public static long[] create(int size) {
+        return new long[(size + WORD_BITS - 1) / WORD_BITS];
+    }
+
+    public static void add(long[] set, int element) {
+        set[element / WORD_BITS] |= 1L << (element % WORD_BITS);
+    }
+
+    public static void remove(long[] set, int element) {
+        set[element / WORD_BITS] &= ~(1L << (element % WORD_BITS));
+    }
+
+    public static boolean contains(long[] set, int element) {
+        return (set[element / WORD_BITS] & (1L << (element % WORD_BITS))) != 0;
+    }
+
+    public static int size(long[] set) {
+        int size = 0;
+        for (long word : set) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    /**
+     * @return the first element equal to or greater than the given one, or -1 if there is none
+     */
+    public static int next(long[] set, int from) {
+        int index = from / WORD_BITS;
+        if (index >= set.length) {
+            return -1;
+        }
+
+        long word = set[index] & (-1L << (from % WORD_BITS));
+        while (true) {
+            if (word != 0) {
+                return index * WORD_BITS + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == set.length) {
+                return -1;
+            }
+            word = set[index];
+        }
+    }
+
+    /**
+     * Adds every element of the source to the target.
+     */
+    public static void addAll(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= source[i];
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package pt.up.fe.comp2024.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * In-memory cache of generated code fragments (e.g., the code of a single method), evicting the least recently
+ * used fragments once it holds more than its capacity.
+ * <p>
+ * Keys must identify everything the fragment depends on, usually through {@link HashUtils#sha256(String...)}.
+ * Can be shared by several threads.
+ */
+public class FragmentCache {
+
+    private final LinkedHashMap<String, String> fragments;
+    private long hits;
+    private long misses;
+
+    public FragmentCache(int capacity) {
+        this.fragments = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * Returns the fragment with the given key, generating and storing it if it is not cached.
+     * The generator runs without holding the cache lock.
+     */
+    public String get(String key, Supplier<String> generator) {
+        synchronized (this) {
+            var fragment = fragments.get(key);
+            if (fragment != null) {
+                hits++;
+                return fragment;
+            }
+            misses++;
+        }
+
+        var fragment = generator.get();
+
+        synchronized (this) {
+            fragments.put(key, fragment);
+        }
+
+        return fragment;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return fragments.size();
+    }
+}
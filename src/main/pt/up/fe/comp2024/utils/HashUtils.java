@@ -0,0 +1,31 @@
+package pt.up.fe.comp2024.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class HashUtils {
+
+    /**
+     * Hashes the given strings with SHA-256. Parts are separated, so ("ab", "c") and ("a", "bc") do not collide.
+     *
+     * @param parts
+     * @return the hash, as a lowercase hexadecimal string
+     */
+    public static String sha256(String... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+
+        for (var part : parts) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
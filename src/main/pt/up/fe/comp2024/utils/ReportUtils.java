@@ -1,5 +1,6 @@
 package pt.up.fe.comp2024.utils;
 
+import com.google.gson.JsonObject;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
@@ -49,4 +50,35 @@ public class ReportUtils {
 
         return reports.stream().anyMatch(r -> r.getType() == ReportType.ERROR);
     }
+
+    /**
+     * Converts a report to JSON, keeping everything except the exception.
+     *
+     * @param report
+     * @return
+     */
+    public static JsonObject toJson(Report report) {
+        var json = new JsonObject();
+        json.addProperty("type", report.getType().name());
+        json.addProperty("stage", report.getStage().name());
+        json.addProperty("line", report.getLine());
+        json.addProperty("column", report.getColumn());
+        json.addProperty("message", report.getMessage());
+        return json;
+    }
+
+    /**
+     * Inverse of {@link #toJson(Report)}.
+     *
+     * @param json
+     * @return
+     */
+    public static Report fromJson(JsonObject json) {
+        return new Report(
+                ReportType.valueOf(json.get("type").getAsString()),
+                Stage.valueOf(json.get("stage").getAsString()),
+                json.get("line").getAsInt(),
+                json.get("column").getAsInt(),
+                json.get("message").getAsString());
+    }
 }
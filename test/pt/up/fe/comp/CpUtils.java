@@ -24,6 +24,7 @@ import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsStrings;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 import pt.up.fe.specs.util.utilities.LineStream;
+import utils.TestResultCache;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -117,7 +118,7 @@ public class CpUtils {
 
         var ollirResult = new OllirResult(SpecsIo.getResource(resource), Collections.emptyMap());
 
-        var result = TestUtils.backend(ollirResult);
+        var result = TestResultCache.backend(ollirResult);
 
         var testName = new File(resource).getName();
         System.out.println(testName + ":\n" + result.getJasminCode());
@@ -4,6 +4,7 @@ import org.junit.Test;
 import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.specs.util.SpecsIo;
+import utils.TestResultCache;
 
 import static org.junit.Assert.assertEquals;
 
@@ -13,7 +14,7 @@ import static org.junit.Assert.assertEquals;
 public class SymbolTableTest {
 
     static JmmSemanticsResult getSemanticsResult(String filename) {
-        return TestUtils.analyse(SpecsIo.getResource("pt/up/fe/comp/cp1/" + filename));
+        return TestResultCache.analyse(SpecsIo.getResource("pt/up/fe/comp/cp1/" + filename));
     }
 
     static JmmSemanticsResult test(String filename, boolean fail) {
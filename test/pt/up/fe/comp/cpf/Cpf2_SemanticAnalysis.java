@@ -19,6 +19,7 @@ import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.specs.util.SpecsIo;
+import utils.TestResultCache;
 
 import static org.junit.Assert.assertEquals;
 
@@ -29,7 +30,7 @@ public class Cpf2_SemanticAnalysis {
     }
 
     static JmmSemanticsResult getSemanticsResult(String filename) {
-        return TestUtils.analyse(SpecsIo.getResource("pt/up/fe/comp/cpf/2_semantic_analysis/" + filename));
+        return TestResultCache.analyse(SpecsIo.getResource("pt/up/fe/comp/cpf/2_semantic_analysis/" + filename));
     }
 
     static JmmSemanticsResult test(String filename, boolean fail) {
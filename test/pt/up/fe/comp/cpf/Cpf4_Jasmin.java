@@ -22,6 +22,7 @@ import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsStrings;
 import utils.ProjectTestUtils;
+import utils.TestResultCache;
 
 import java.util.Collections;
 
@@ -50,7 +51,7 @@ public class Cpf4_Jasmin {
 
         var ollirResult = new OllirResult(SpecsIo.getResource(resource), Collections.emptyMap());
 
-        var result = TestUtils.backend(ollirResult);
+        var result = TestResultCache.backend(ollirResult);
 
         System.out.println(result.getJasminCode());
         return result;
@@ -75,7 +76,7 @@ public class Cpf4_Jasmin {
 
         var ollirResult = new OllirResult(SpecsIo.getResource(resource), Collections.emptyMap());
 
-        var result = TestUtils.backend(ollirResult);
+        var result = TestResultCache.backend(ollirResult);
         ProjectTestUtils.runJasmin(result, null);
     }
 
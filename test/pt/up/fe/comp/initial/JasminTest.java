@@ -5,6 +5,7 @@ import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.specs.util.SpecsIo;
+import utils.TestResultCache;
 
 import java.io.File;
 import java.util.Collections;
@@ -39,7 +40,7 @@ public class JasminTest {
 
             var ollirResult = new OllirResult(SpecsIo.getResource(resource), Collections.emptyMap());
 
-            result = TestUtils.backend(ollirResult);
+            result = TestResultCache.backend(ollirResult);
         }
 
         var testName = new File(resource).getName();
@@ -0,0 +1,97 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BatchCompilerTest {
+
+    private static final String INPUTS = "test/pt/up/fe/comp/cpf/3_ollir,test/pt/up/fe/comp/cp2/apps";
+
+    private static File compile(List<File> inputs, int jobs) {
+        var outputDir = SpecsIo.newRandomFolder();
+        SpecsIo.deleteFolderContents(outputDir);
+
+        Map<String, String> config = CompilerConfig.parseArgs(new String[]{
+                "-i=" + INPUTS, "-d=" + outputDir.getAbsolutePath(), "-j=" + jobs});
+
+        new BatchCompiler(config, System.out).compile(inputs);
+
+        return outputDir;
+    }
+
+    @Test
+    public void parallelOutputMatchesSerial() throws Exception {
+        Map<String, String> config = CompilerConfig.parseArgs(new String[]{"-i=" + INPUTS});
+        List<File> inputs = CompilerConfig.getInputFiles(config);
+
+        File serial = compile(inputs, 1);
+        File parallel = compile(inputs, 4);
+
+        String[] serialFiles = serial.list();
+        String[] parallelFiles = parallel.list();
+        Arrays.sort(serialFiles);
+        Arrays.sort(parallelFiles);
+
+        assertFalse("Expected the batch to generate files", serialFiles.length == 0);
+        assertArrayEquals(serialFiles, parallelFiles);
+
+        for (String name : serialFiles) {
+            byte[] expected = Files.readAllBytes(new File(serial, name).toPath());
+            byte[] actual = Files.readAllBytes(new File(parallel, name).toPath());
+            assertArrayEquals("Output '" + name + "' differs between serial and parallel compilation", expected, actual);
+        }
+    }
+
+    /**
+     * Inputs declaring the same class write the same files, which end up with the outputs of the last of them.
+     */
+    @Test
+    public void lastInputDeclaringAClassIsKept() {
+        var inputDir = SpecsIo.newRandomFolder();
+        SpecsIo.deleteFolderContents(inputDir);
+
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            var input = new File(inputDir, "Same" + i + ".jmm");
+            SpecsIo.write(input, """
+                    import io;
+                    class Same {
+                        public static void main(String[] args) {
+                            io.println(%d);
+                        }
+                    }
+                    """.formatted(i));
+            inputs.add(input);
+        }
+
+        var last = new CompilerPipeline().compile(SpecsIo.read(inputs.get(7)), CompilerConfig.getDefault());
+
+        for (int jobs : new int[]{1, 4}) {
+            var outputDir = compile(inputs, jobs);
+            assertEquals(jobs + " job(s)", last.getJasminCode(), SpecsIo.read(new File(outputDir, "Same.j")));
+        }
+    }
+
+    @Test
+    public void recompilingGivesSameOutput() {
+        var pipeline = new CompilerPipeline();
+        var code = SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm");
+
+        var first = pipeline.compile(code, CompilerConfig.getDefault());
+        var second = pipeline.compile(code, CompilerConfig.getDefault());
+
+        assertEquals(first.getOllirCode(), second.getOllirCode());
+        assertEquals(first.getJasminCode(), second.getJasminCode());
+    }
+}
@@ -0,0 +1,108 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
+import pt.up.fe.comp2024.backend.ClassFileResult;
+import pt.up.fe.comp2024.backend.ClassFileWriter;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.backend.JasminCode;
+import pt.up.fe.comp2024.backend.JasminInstruction;
+import pt.up.fe.comp2024.backend.Opcode;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ClassFileBackendTest {
+
+    private static final File JASMIN_TESTS = new File("test/pt/up/fe/comp/cpf/4_jasmin");
+
+    @Test
+    public void jasminTestsHaveTheSameOutput() throws IOException {
+        List<Path> files;
+        try (var paths = Files.walk(JASMIN_TESTS.toPath())) {
+            files = paths.filter(path -> path.toString().endsWith(".ollir")).sorted().toList();
+        }
+        assertFalse(files.isEmpty());
+
+        for (var file : files) {
+            String ollirCode = SpecsIo.read(file.toFile());
+            if (!ollirCode.contains(".method public static main(")) continue;
+
+            var expected = new JasminBackendImpl().toJasmin(new OllirResult(ollirCode, CompilerConfig.getDefault()));
+            var direct = new ClassFileBackendImpl().toJasmin(new OllirResult(ollirCode, CompilerConfig.getDefault()));
+
+            assertEquals(file.toString(), expected.getJasminCode(), direct.getJasminCode());
+            assertEquals(file.toString(), expected.run(), direct.run());
+        }
+    }
+
+    @Test
+    public void pipelineKeepsTheClassFile() {
+        var code = SpecsIo.getResource("pt/up/fe/comp/cpf/4_jasmin/control_flow/SimpleWhileStat.jmm");
+        var config = CompilerConfig.getDefault();
+        config.put("optimize", "true");
+        config.put("registerAllocation", "0");
+        config.put("classFile", "true");
+
+        var result = new CompilerPipeline().compile(code, config);
+        assertFalse(result.getReports().toString(), result.hasErrors());
+        assertNotNull(result.getClassFile());
+
+        var jasminResult = result.toJasminResult(config);
+        assertTrue(jasminResult instanceof ClassFileResult);
+        assertEquals("Result: 0\nResult: 1\nResult: 2", jasminResult.run().strip());
+    }
+
+    /**
+     * Registers above 255 need wide loads, stores and increments, and large constants go to the constant pool.
+     */
+    @Test
+    public void wideInstructionsRun() throws ReflectiveOperationException {
+        var code = new JasminCode();
+        var loop = code.getLabel("loop");
+        var end = code.getLabel("end");
+
+        code.add(Opcode.ILOAD, 0);
+        code.add(Opcode.ISTORE, 300);
+        code.add(JasminInstruction.constant(0));
+        code.add(Opcode.ISTORE, 1);
+        code.place(loop);
+        code.add(Opcode.ILOAD, 300);
+        code.add(Opcode.IFLE, end);
+        code.add(Opcode.ILOAD, 1);
+        code.add(JasminInstruction.constant(100000));
+        code.add(Opcode.IADD);
+        code.add(Opcode.ISTORE, 1);
+        code.add(JasminInstruction.iinc(300, -1));
+        code.add(Opcode.GOTO, loop);
+        code.place(end);
+        code.add(Opcode.ILOAD, 1);
+        code.add(Opcode.IRETURN);
+
+        var writer = new ClassFileWriter();
+        writer.setClass("Wide", "java/lang/Object");
+        writer.addMethod(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC, "sum", "(I)I", 2, 301, code);
+        byte[] classFile = writer.toByteArray();
+
+        var loader = new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) {
+                return defineClass(name, classFile, 0, classFile.length);
+            }
+        };
+        // the class is not public, as in the classes Jasmin assembles
+        var sum = loader.loadClass("Wide").getMethod("sum", int.class);
+        sum.setAccessible(true);
+        assertEquals(300000, sum.invoke(null, 3));
+    }
+}
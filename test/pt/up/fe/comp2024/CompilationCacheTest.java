@@ -0,0 +1,83 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.specs.util.SpecsIo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompilationCacheTest {
+
+    private static CompilationCache newCache(long maxSize) {
+        var cacheDir = SpecsIo.newRandomFolder();
+        SpecsIo.deleteFolderContents(cacheDir);
+        return new CompilationCache(cacheDir, maxSize);
+    }
+
+    @Test
+    public void hitReturnsSameResult() {
+        var cache = newCache(Long.MAX_VALUE);
+        var pipeline = new CompilerPipeline();
+        var code = SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm");
+        var config = CompilerConfig.getDefault();
+
+        var compiled = cache.compile(pipeline, code, config);
+        var cached = cache.compile(pipeline, code, config);
+
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(compiled.getOllirCode(), cached.getOllirCode());
+        assertEquals(compiled.getJasminCode(), cached.getJasminCode());
+        assertEquals(compiled.getReports().size(), cached.getReports().size());
+        assertTrue(cached.getStageTimes().containsKey(CompilationCache.LOOKUP));
+        assertFalse(cached.getStageTimes().containsKey(CompilerPipeline.PARSE));
+    }
+
+    @Test
+    public void keyDependsOnConfig() {
+        var cache = newCache(Long.MAX_VALUE);
+        var code = SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm");
+
+        var optimized = CompilerConfig.getDefault();
+        optimized.put("optimize", "true");
+
+        assertNotEquals(cache.getKey(code, CompilerConfig.getDefault()), cache.getKey(code, optimized));
+    }
+
+    @Test
+    public void classFileBuildsAreCachedApart() {
+        var cache = newCache(Long.MAX_VALUE);
+        var pipeline = new CompilerPipeline();
+        var code = SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm");
+
+        var classFileConfig = CompilerConfig.getDefault();
+        classFileConfig.put("classFile", "true");
+
+        assertNull(cache.compile(pipeline, code, CompilerConfig.getDefault()).getClassFile());
+
+        var compiled = cache.compile(pipeline, code, classFileConfig);
+        assertNotNull(compiled.getClassFile());
+
+        var cached = cache.compile(pipeline, code, classFileConfig);
+        assertEquals(1, cache.getHits());
+        assertArrayEquals(compiled.getClassFile(), cached.getClassFile());
+    }
+
+    @Test
+    public void evictsWhenFull() {
+        var cache = newCache(0);
+        var pipeline = new CompilerPipeline();
+        var code = SpecsIo.getResource("pt/up/fe/comp/cp2/apps/HelloWorld.jmm");
+
+        cache.compile(pipeline, code, CompilerConfig.getDefault());
+        cache.compile(pipeline, code, CompilerConfig.getDefault());
+
+        assertEquals(0, cache.getSize());
+        assertEquals(2, cache.getMisses());
+    }
+}
@@ -0,0 +1,120 @@
+package pt.up.fe.comp2024;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompileServerTest {
+
+    private static final Gson GSON = new Gson();
+
+    private static final String CODE = SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm");
+
+    private static String request(int id, String source) {
+        var request = new JsonObject();
+        request.addProperty("id", id);
+        request.addProperty("source", source);
+        return GSON.toJson(request);
+    }
+
+    private static JsonObject parse(String response) {
+        return GSON.fromJson(response, JsonObject.class);
+    }
+
+    private static void assertError(JsonObject response) {
+        assertFalse(response.toString(), response.get("success").getAsBoolean());
+        assertTrue(response.toString(), response.has("error"));
+    }
+
+    @Test
+    public void validRequestCompiles() {
+        var response = parse(new CompileServer().handle(
+                "{\"id\": 7, \"source\": " + GSON.toJson(CODE) + ", \"config\": {\"optimize\": \"true\"}}"));
+
+        assertTrue(response.toString(), response.get("success").getAsBoolean());
+        assertEquals(7, response.get("id").getAsInt());
+        assertEquals("Simple", response.get("className").getAsString());
+        assertNotNull(response.get("jasmin").getAsString());
+        assertTrue(response.getAsJsonObject("timings").has("total"));
+    }
+
+    @Test
+    public void malformedJsonIsAnError() {
+        var server = new CompileServer();
+
+        assertError(parse(server.handle("{\"source\": ")));
+        assertError(parse(server.handle("[1, 2]")));
+        assertError(parse(server.handle("null")));
+    }
+
+    @Test
+    public void fieldsOfTheWrongTypeAreErrors() {
+        var server = new CompileServer();
+        var source = GSON.toJson(CODE);
+
+        for (var request : List.of(
+                "{\"id\": 1, \"source\": " + source + ", \"config\": \"x\"}",
+                "{\"id\": 1, \"source\": " + source + ", \"config\": {\"optimize\": {}}}",
+                "{\"id\": 1, \"source\": " + source + ", \"config\": {\"optimize\": [true]}}",
+                "{\"id\": 1, \"source\": null}",
+                "{\"id\": 1, \"source\": {}}",
+                "{\"id\": 1, \"source\": 5}",
+                "{\"id\": 1}")) {
+            var response = parse(server.handle(request));
+            assertError(response);
+            assertEquals(request, 1, response.get("id").getAsInt());
+        }
+    }
+
+    @Test
+    public void crashInTheCompilerIsAnError() {
+        var crashing = new CompilerPipeline(true) {
+            @Override
+            public CompilationResult compile(String code, Map<String, String> config) {
+                if (code.contains("crash")) {
+                    throw new IllegalStateException("crash");
+                }
+                return super.compile(code, config);
+            }
+        };
+        var server = new CompileServer(crashing, null);
+
+        var response = parse(server.handle(request(1, "// crash\n" + CODE)));
+        assertError(response);
+        assertTrue(response.get("error").getAsString().contains("IllegalStateException"));
+
+        // the server keeps answering
+        assertTrue(parse(server.handle(request(2, CODE))).get("success").getAsBoolean());
+    }
+
+    @Test
+    public void requestsInARowOnTheSameStream() throws IOException {
+        var requests = String.join("\n", request(1, CODE), "{\"id\": 2, \"source\": {}}", "", request(3, CODE)) + "\n";
+        var output = new ByteArrayOutputStream();
+
+        new CompileServer().serve(new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), output);
+
+        var responses = output.toString(StandardCharsets.UTF_8).lines().map(CompileServerTest::parse).toList();
+        assertEquals(3, responses.size());
+
+        assertEquals(1, responses.get(0).get("id").getAsInt());
+        assertTrue(responses.get(0).get("success").getAsBoolean());
+        assertEquals(2, responses.get(1).get("id").getAsInt());
+        assertError(responses.get(1));
+        assertEquals(3, responses.get(2).get("id").getAsInt());
+        assertTrue(responses.get(2).get("success").getAsBoolean());
+    }
+}
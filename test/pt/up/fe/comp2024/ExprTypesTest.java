@@ -0,0 +1,108 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.ast.ExprTypes;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ExprTypesTest {
+
+    private static final String CODE = """
+            import io;
+            class Types {
+                int field;
+                public int sum(int[] a, boolean b) {
+                    int i;
+                    i = 0;
+                    while (i < a.length && !b) {
+                        field = field + a[i] * 2;
+                        i = i + 1;
+                    }
+                    io.println(this.sum(new int[field], true));
+                    return field;
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    private static JmmSemanticsResult analyse(String code) {
+        var parserResult = new JmmParserImpl().parse(code, CompilerConfig.getDefault());
+        return new JmmAnalysisImpl().semanticAnalysis(parserResult);
+    }
+
+    private static List<JmmNode> ofKind(JmmNode root, Kind kind) {
+        return root.getDescendants(kind.getNodeName());
+    }
+
+    @Test
+    public void literalsAndOperatorsShareTheirTypes() {
+        var semantics = analyse(CODE);
+        var root = semantics.getRootNode();
+        var table = semantics.getSymbolTable();
+
+        for (var literal : ofKind(root, Kind.INTEGER_LITERAL)) {
+            assertSame(ExprTypes.INT, TypeUtils.getExprType(literal, table, "sum"));
+        }
+        for (var operator : ofKind(root, Kind.BINARY_EXPR)) {
+            var type = TypeUtils.getExprType(operator, table, "sum");
+            assertTrue(type == ExprTypes.INT || type == ExprTypes.BOOLEAN);
+        }
+        assertSame(ExprTypes.BOOLEAN, TypeUtils.getExprType(ofKind(root, Kind.NEG_EXPR).get(0), table, "sum"));
+        assertSame(ExprTypes.INT_ARRAY, TypeUtils.getExprType(ofKind(root, Kind.NEW_ARRAY_EXPR).get(0), table, "sum"));
+    }
+
+    @Test
+    public void analysisTypesEveryExpression() {
+        var semantics = analyse(CODE);
+        assertEquals(List.of(), semantics.getReports());
+
+        var root = semantics.getRootNode();
+        long expressions = root.getDescendantsStream()
+                .filter(node -> node.getKind().endsWith("Expr") || node.getKind().endsWith("Literal"))
+                .count();
+
+        var exprTypes = ((JmmSymbolTable) semantics.getSymbolTable()).getExprTypes();
+        assertEquals(expressions, exprTypes.size());
+
+        // the types are no longer kept in the AST
+        assertTrue(root.getDescendantsStream().noneMatch(node -> node.hasAttribute("type")));
+    }
+
+    /**
+     * The shared types must never get the attributes that the types of variables and objects are marked with.
+     */
+    @Test
+    public void sharedTypesAreNotChanged() throws IOException {
+        List<Path> files;
+        try (var paths = Files.walk(Path.of("test/pt/up/fe/comp"))) {
+            files = paths.filter(path -> path.toString().endsWith(".jmm")).sorted().toList();
+        }
+        assertFalse(files.isEmpty());
+
+        var pipeline = new CompilerPipeline();
+        for (var file : files) {
+            pipeline.compile(SpecsIo.read(file.toFile()), CompilerConfig.getDefault());
+        }
+
+        for (var type : List.of(ExprTypes.INT, ExprTypes.BOOLEAN, ExprTypes.INT_ARRAY)) {
+            assertTrue(type.toString(), type.getAttributes().isEmpty());
+        }
+    }
+}
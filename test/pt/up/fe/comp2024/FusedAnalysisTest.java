@@ -0,0 +1,65 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FusedAnalysisTest {
+
+    private static List<String> analyse(String code, boolean fused) {
+        var config = CompilerConfig.getDefault();
+        config.put("fusedAnalysis", String.valueOf(fused));
+
+        var parserResult = new JmmParserImpl().parse(code, config);
+        if (parserResult.getRootNode() == null) {
+            return List.of();
+        }
+
+        return new JmmAnalysisImpl().semanticAnalysis(parserResult).getReports().stream()
+                .map(Report::toString)
+                .toList();
+    }
+
+    /**
+     * The test programs include many that fail analysis, in every pass.
+     */
+    @Test
+    public void testProgramsHaveTheSameReports() throws IOException {
+        List<Path> files;
+        try (var paths = Files.walk(Path.of("test/pt/up/fe/comp"))) {
+            files = paths.filter(path -> path.toString().endsWith(".jmm")).sorted().toList();
+        }
+        assertFalse(files.isEmpty());
+
+        int withErrors = 0;
+        for (var file : files) {
+            String code = SpecsIo.read(file.toFile());
+            var sequential = analyse(code, false);
+
+            assertEquals(file.toString(), sequential, analyse(code, true));
+            if (!sequential.isEmpty()) withErrors++;
+        }
+
+        assertTrue(withErrors > 10);
+    }
+
+    @Test
+    public void generatedProgramsHaveNoReports() {
+        for (int seed = 0; seed < 5; seed++) {
+            String code = new ProgramGenerator(seed).methods(10).nestingDepth(3).generate("Gen" + seed);
+            assertEquals(List.of(), analyse(code, true));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
+import pt.up.fe.comp2024.backend.InMemoryRunner;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InMemoryRunnerTest {
+
+    private static final File JASMIN_TESTS = new File("test/pt/up/fe/comp/cpf/4_jasmin");
+
+    private static JasminResult compile(String code) {
+        var config = CompilerConfig.getDefault();
+        var result = new CompilerPipeline().compile(code, config);
+        assertFalse(result.getReports().toString(), result.hasErrors());
+        return result.toJasminResult(config);
+    }
+
+    @Test
+    public void jasminTestsHaveTheSameOutput() throws IOException {
+        List<Path> files;
+        try (var paths = Files.walk(JASMIN_TESTS.toPath())) {
+            files = paths.filter(path -> path.toString().endsWith(".ollir")).sorted().toList();
+        }
+        assertFalse(files.isEmpty());
+
+        var runner = new InMemoryRunner();
+        for (var file : files) {
+            String ollirCode = SpecsIo.read(file.toFile());
+            if (!ollirCode.contains(".method public static main(")) continue;
+
+            var result = new JasminBackendImpl().toJasmin(new OllirResult(ollirCode, CompilerConfig.getDefault()));
+            var classFile = new ClassFileBackendImpl().toJasmin(new OllirResult(ollirCode, CompilerConfig.getDefault()));
+
+            String expected = result.run();
+            assertEquals(file.toString(), expected, runner.run(result));
+            assertEquals(file.toString(), expected, runner.run(classFile));
+        }
+    }
+
+    @Test
+    public void exceptionsEndTheProgram() {
+        var result = compile("""
+                import io;
+                class Outside {
+                    public static void main(String[] args) {
+                        int[] a;
+                        a = new int[2];
+                        io.println(1);
+                        a[2] = 3;
+                        io.println(2);
+                    }
+                }""");
+
+        var output = new InMemoryRunner().runWithFullOutput(result, List.of(), null);
+        assertEquals(1, output.getReturnValue());
+        assertEquals("1", output.getStdOut().strip());
+        assertTrue(output.getStdErr(), output.getStdErr().startsWith("Exception in thread \"main\""));
+        assertTrue(output.getStdErr(), output.getStdErr().contains("ArrayIndexOutOfBoundsException"));
+    }
+
+    @Test
+    public void eachRunReadsItsOwnInput() {
+        var result = compile("""
+                import io;
+                class Sum {
+                    public static void main(String[] args) {
+                        int a;
+                        int b;
+                        a = io.read();
+                        b = io.read();
+                        io.println(a + b);
+                    }
+                }""");
+
+        // io keeps what it read in a static field, which a second run in the same loader would see
+        var runner = new InMemoryRunner();
+        assertEquals("7", runner.run(result, "3\n4\n").strip());
+        assertEquals("11", runner.run(result, "5\n6\n").strip());
+    }
+
+    @Test
+    public void programsRunAtTheSameTime() throws InterruptedException, ExecutionException {
+        var runner = new InMemoryRunner();
+        var executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<String>> outputs = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                var result = compile("""
+                        import io;
+                        class Count%d {
+                            public static void main(String[] args) {
+                                int i;
+                                i = 0;
+                                while (i < 200) {
+                                    io.println(%d);
+                                    i = i + 1;
+                                }
+                            }
+                        }""".formatted(i, i));
+                outputs.add(executor.submit(() -> runner.run(result)));
+            }
+
+            for (int i = 0; i < outputs.size(); i++) {
+                String expected = (i + "\n").repeat(200);
+                assertEquals(expected, outputs.get(i).get().replace("\r\n", "\n"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class IncrementalCompilationTest {
+
+    private static final int METHODS = 20;
+
+    private static String buildClass(int changedMethod) {
+        var code = new StringBuilder("import io;\nclass Many {\n    int field;\n");
+
+        for (int i = 0; i < METHODS; i++) {
+            int constant = i == changedMethod ? 1000 : i;
+            code.append("    public int m").append(i).append("(int a, boolean b) {\n")
+                    .append("        int x;\n")
+                    .append("        x = a * ").append(constant).append(";\n")
+                    .append("        while (x < 100) { x = x + field + 1; }\n")
+                    .append("        if (b) { io.println(x); } else { x = this.m").append((i + 1) % METHODS)
+                    .append("(x, b); }\n")
+                    .append("        return x;\n")
+                    .append("    }\n");
+        }
+
+        code.append("    public static void main(String[] args) {\n    }\n}\n");
+        return code.toString();
+    }
+
+    private static void assertSameOutput(CompilationResult expected, CompilationResult actual) {
+        assertFalse(actual.getReports().toString(), actual.hasErrors());
+        assertEquals(expected.getOllirCode(), actual.getOllirCode());
+        assertEquals(expected.getJasminCode(), actual.getJasminCode());
+    }
+
+    @Test
+    public void onlyChangedMethodIsGenerated() {
+        var incremental = new CompilerPipeline(true);
+        var full = new CompilerPipeline();
+        Map<String, String> config = CompilerConfig.getDefault();
+
+        assertSameOutput(full.compile(buildClass(-1), config), incremental.compile(buildClass(-1), config));
+
+        var ollirMethods = incremental.getOllirMethods().orElseThrow();
+        var jasminMethods = incremental.getJasminMethods().orElseThrow();
+        long ollirMisses = ollirMethods.getMisses();
+        long jasminMisses = jasminMethods.getMisses();
+
+        assertSameOutput(full.compile(buildClass(3), config), incremental.compile(buildClass(3), config));
+
+        assertEquals(1, ollirMethods.getMisses() - ollirMisses);
+        assertEquals(1, jasminMethods.getMisses() - jasminMisses);
+    }
+
+    @Test
+    public void registerAllocationChangesTheKey() {
+        var incremental = new CompilerPipeline(true);
+        var full = new CompilerPipeline();
+
+        Map<String, String> config = CompilerConfig.getDefault();
+        Map<String, String> allocated = CompilerConfig.getDefault();
+        allocated.put("registerAllocation", "0");
+
+        assertSameOutput(full.compile(buildClass(-1), config), incremental.compile(buildClass(-1), config));
+        assertSameOutput(full.compile(buildClass(-1), allocated), incremental.compile(buildClass(-1), allocated));
+    }
+}
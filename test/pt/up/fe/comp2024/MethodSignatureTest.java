@@ -0,0 +1,102 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MethodSignatureTest {
+
+    private static final String CODE = """
+            import io;
+            class Calls {
+                public int sum(int first, int... others) {
+                    int i;
+                    int total;
+                    i = 0;
+                    total = first;
+                    while (i < others.length) {
+                        total = total + others[i];
+                        i = i + 1;
+                    }
+                    return total;
+                }
+                public boolean isPositive(Calls calls, int value) {
+                    return 0 < calls.sum(value);
+                }
+                public static void main(String[] args) {
+                    Calls calls;
+                    int total;
+                    boolean positive;
+                    calls = new Calls();
+                    total = calls.sum(1, 2, 3);
+                    io.println(total);
+                    total = calls.sum(4);
+                    io.println(total);
+                    positive = calls.isPositive(calls, 5);
+                    if (positive) {
+                        io.println(1);
+                    } else {
+                        io.println(0);
+                    }
+                }
+            }
+            """;
+
+    private static JmmSymbolTable build(String code) {
+        var parserResult = new JmmParserImpl().parse(code, CompilerConfig.getDefault());
+        return JmmSymbolTableBuilder.build(parserResult.getRootNode());
+    }
+
+    @Test
+    public void signaturesAreFoundByName() {
+        var table = build(CODE);
+
+        var sum = table.getSignature("sum");
+        assertTrue(sum.isVararg());
+        assertEquals(2, sum.getArity());
+        assertEquals("int", sum.returnType().getName());
+        assertEquals(List.of("first", "others"), sum.parameters().stream().map(Symbol::getName).toList());
+
+        var isPositive = table.getSignature("isPositive");
+        assertFalse(isPositive.isVararg());
+        assertEquals("boolean", isPositive.returnType().getName());
+        assertEquals("Calls", isPositive.parameters().get(0).getType().getName());
+
+        assertFalse(table.getSignature("main").isVararg());
+        assertNull(table.getSignature("missing"));
+    }
+
+    @Test
+    public void callsUseTheOllirTypesOfTheMethods() {
+        var result = new CompilerPipeline().compile(CODE, CompilerConfig.getDefault());
+        assertFalse(result.hasErrors());
+
+        var ollirCode = result.getOllirCode();
+        assertTrue(ollirCode.contains("invokevirtual(calls.Calls, \"sum\", 1.i32, tmp1.array.i32).i32;"));
+        assertTrue(ollirCode.contains("invokevirtual(calls.Calls, \"isPositive\", calls.Calls, 5.i32).bool;"));
+    }
+
+    @Test
+    public void callsUseTheDescriptorsOfTheMethods() {
+        var config = CompilerConfig.getDefault();
+        var result = new CompilerPipeline().compile(CODE, config);
+        assertFalse(result.hasErrors());
+
+        var jasminCode = result.getJasminCode();
+        assertTrue(jasminCode.contains(".method public sum(I[I)I"));
+        assertTrue(jasminCode.contains("invokevirtual Calls/sum(I[I)I"));
+        assertTrue(jasminCode.contains(".method public isPositive(LCalls;I)Z"));
+        assertTrue(jasminCode.contains("invokevirtual Calls/isPositive(LCalls;I)Z"));
+
+        assertEquals("6\n4\n1", result.toJasminResult(config).run().strip().replace("\r\n", "\n"));
+    }
+}
@@ -0,0 +1,100 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ParallelAnalysisTest {
+
+    private static Map<String, String> config(boolean parallel) {
+        var config = CompilerConfig.getDefault();
+        config.put("parallelAnalysis", String.valueOf(parallel));
+        return config;
+    }
+
+    private static List<String> analyse(String code, boolean parallel) {
+        var parserResult = new JmmParserImpl().parse(code, config(parallel));
+        if (parserResult.getRootNode() == null) {
+            return List.of();
+        }
+
+        return new JmmAnalysisImpl().semanticAnalysis(parserResult).getReports().stream()
+                .map(Report::toString)
+                .toList();
+    }
+
+    private static List<Path> testPrograms() throws IOException {
+        try (var paths = Files.walk(Path.of("test/pt/up/fe/comp"))) {
+            return paths.filter(path -> path.toString().endsWith(".jmm")).sorted().toList();
+        }
+    }
+
+    @Test
+    public void testProgramsHaveTheSameReports() throws IOException {
+        var files = testPrograms();
+        assertFalse(files.isEmpty());
+
+        for (var file : files) {
+            String code = SpecsIo.read(file.toFile());
+            assertEquals(file.toString(), analyse(code, false), analyse(code, true));
+        }
+    }
+
+    /**
+     * The types the analysis leaves in the AST and in the symbol table are used to generate OLLIR.
+     */
+    @Test
+    public void testProgramsHaveTheSameOllir() throws IOException {
+        var pipeline = new CompilerPipeline();
+
+        for (var file : testPrograms()) {
+            String code = SpecsIo.read(file.toFile());
+            var sequential = pipeline.compile(code, config(false));
+            if (sequential.hasErrors()) continue;
+
+            assertEquals(file.toString(), sequential.getOllirCode(), pipeline.compile(code, config(true)).getOllirCode());
+        }
+    }
+
+    @Test
+    public void reportsFollowTheOrderOfTheMethods() throws InterruptedException, ExecutionException {
+        var code = new StringBuilder("import io;\nclass Errors {\n");
+        for (int i = 0; i < 200; i++) {
+            code.append("""
+                        public int method%d(int a) {
+                            int b;
+                            b = missing%d;
+                            io.println(a + b);
+                            return undeclared%d;
+                        }
+                    """.formatted(i, i, i));
+        }
+        code.append("    public static void main(String[] args) {\n    }\n}\n");
+
+        var sequential = analyse(code.toString(), false);
+        assertEquals(400, sequential.size());
+
+        // the methods are analysed by the pool that runs the analysis, which has more threads than the common pool
+        var pool = new ForkJoinPool(8);
+        try {
+            for (int i = 0; i < 5; i++) {
+                assertEquals(sequential, pool.submit(() -> analyse(code.toString(), true)).get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
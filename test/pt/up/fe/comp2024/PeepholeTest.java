@@ -0,0 +1,169 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.JasminCode;
+import pt.up.fe.comp2024.backend.JasminGenerator;
+import pt.up.fe.comp2024.backend.JasminInstruction;
+import pt.up.fe.comp2024.backend.JasminPeephole;
+import pt.up.fe.comp2024.backend.Opcode;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PeepholeTest {
+
+    private static final File JASMIN_TESTS = new File("test/pt/up/fe/comp/cpf/4_jasmin");
+
+    private static JasminResult toJasmin(String ollirCode, boolean optimize) {
+        var config = CompilerConfig.getDefault();
+        config.put("optimize", String.valueOf(optimize));
+
+        var ollirResult = new OllirResult(ollirCode, config);
+        var generator = new JasminGenerator(ollirResult);
+        return new JasminResult(ollirResult, generator.build(), generator.getReports());
+    }
+
+    @Test
+    public void jasminTestsHaveTheSameOutput() throws IOException {
+        List<Path> files;
+        try (var paths = Files.walk(JASMIN_TESTS.toPath())) {
+            files = paths.filter(path -> path.toString().endsWith(".ollir")).sorted().toList();
+        }
+        assertFalse(files.isEmpty());
+
+        for (var file : files) {
+            String ollirCode = SpecsIo.read(file.toFile());
+            var expected = toJasmin(ollirCode, false);
+            var optimized = toJasmin(ollirCode, true);
+
+            if (ollirCode.contains(".method public static main(")) {
+                assertEquals(file.toString(), expected.run(), optimized.run());
+            } else {
+                // no main to run, but it must still assemble
+                optimized.compile();
+            }
+        }
+    }
+
+    /**
+     * With a = MIN_VALUE and b = 1, a - b overflows to MAX_VALUE: a < b holds, but a - b < 0 does not.
+     */
+    @Test
+    public void comparisonsDoNotOverflow() {
+        String ollirCode = """
+                import io;
+                Overflow {
+                    .construct Overflow().V {
+                        invokespecial(this, "<init>").V;
+                    }
+                    .method public static lessThan(a.i32, b.i32).bool {
+                        t.bool :=.bool a.i32 <.bool b.i32;
+                        ret.bool t.bool;
+                    }
+                    .method public static negativeDifference(a.i32, b.i32).bool {
+                        d.i32 :=.i32 a.i32 -.i32 b.i32;
+                        t.bool :=.bool d.i32 <.bool 0.i32;
+                        ret.bool t.bool;
+                    }
+                    .method public static print(value.bool).V {
+                        if (value.bool) goto printTrue;
+                        invokestatic(io, "println", 0.i32).V;
+                        ret.V;
+                    printTrue:
+                        invokestatic(io, "println", 1.i32).V;
+                        ret.V;
+                    }
+                    .method public static main(args.array.String).V {
+                        min.i32 :=.i32 0.i32 -.i32 2147483647.i32;
+                        min.i32 :=.i32 min.i32 -.i32 1.i32;
+                        r.bool :=.bool invokestatic(Overflow, "lessThan", min.i32, 1.i32).bool;
+                        invokestatic(Overflow, "print", r.bool).V;
+                        r.bool :=.bool invokestatic(Overflow, "negativeDifference", min.i32, 1.i32).bool;
+                        invokestatic(Overflow, "print", r.bool).V;
+                        if (min.i32 <.bool 1.i32) goto less;
+                        invokestatic(io, "println", 0.i32).V;
+                        ret.V;
+                    less:
+                        invokestatic(io, "println", 1.i32).V;
+                        ret.V;
+                    }
+                }
+                """;
+
+        for (boolean optimize : new boolean[]{false, true}) {
+            assertEquals("optimize=" + optimize, "1\n0\n1",
+                    toJasmin(ollirCode, optimize).run().strip().replace("\r\n", "\n"));
+        }
+    }
+
+    @Test
+    public void rulesAreAppliedUntilNoneMatches() {
+        var code = new JasminCode();
+        var end = code.getLabel("end");
+        var loop = code.getLabel("loop");
+
+        code.place(loop);
+        code.add(Opcode.ILOAD, 1);
+        code.add(JasminInstruction.constant(10));
+        code.add(Opcode.ISUB);
+        code.add(Opcode.IFEQ, end);
+        code.add(Opcode.ILOAD, 1);
+        code.add(Opcode.POP);
+        code.add(JasminInstruction.constant(1));
+        code.add(Opcode.IFNE, loop);
+        code.add(Opcode.ILOAD, 1);
+        code.add(Opcode.GOTO, end);
+        code.place(end);
+        code.add(Opcode.RETURN);
+
+        var peephole = new JasminPeephole();
+        peephole.optimize(code);
+
+        assertEquals(1, peephole.getHits(JasminPeephole.Rule.COMPARE_BRANCH));
+        assertEquals(1, peephole.getHits(JasminPeephole.Rule.PUSH_POP));
+        assertEquals(1, peephole.getHits(JasminPeephole.Rule.CONSTANT_BRANCH));
+        assertTrue(peephole.getHits(JasminPeephole.Rule.UNREACHABLE) > 0);
+        assertEquals("""
+                loop:
+                iload_1
+                bipush 10
+                if_icmpeq end
+                goto loop
+                end:
+                return""", code.toString().strip().replaceAll("(?m)^\\s+", ""));
+    }
+
+    @Test
+    public void storedValuesStayOnTheStack() {
+        var code = new JasminCode();
+        code.add(JasminInstruction.constant(2));
+        code.add(Opcode.ISTORE, 4);
+        code.add(Opcode.ILOAD, 4);
+        code.add(Opcode.ISTORE, 5);
+        code.add(Opcode.ILOAD, 5);
+        code.add(Opcode.ILOAD, 4);
+        code.add(Opcode.IADD);
+        code.add(Opcode.IRETURN);
+
+        var peephole = new JasminPeephole();
+        peephole.optimize(code);
+
+        // register 4 is read twice, so its first load becomes a dup, and then the store of the second goes too
+        assertEquals(3, peephole.getHits(JasminPeephole.Rule.STORE_LOAD));
+        assertEquals("""
+                iconst_2
+                dup
+                iadd
+                ireturn""", code.toString().strip().replaceAll("(?m)^\\s+", ""));
+    }
+}
@@ -0,0 +1,94 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.backend.InMemoryRunner;
+import pt.up.fe.comp2024.generator.ProgramGenerator;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProgramGeneratorTest {
+
+    private static void assertCompiles(String code, Map<String, String> config) {
+        var result = new CompilerPipeline().compile(code, config);
+        assertFalse(result.getReports().toString(), result.hasErrors());
+    }
+
+    private static Map<String, String> config(boolean optimize, int registerAllocation) {
+        var config = CompilerConfig.getDefault();
+        config.put("optimize", String.valueOf(optimize));
+        config.put("registerAllocation", String.valueOf(registerAllocation));
+        return config;
+    }
+
+    @Test
+    public void sameSeedGeneratesSameProgram() {
+        assertEquals(new ProgramGenerator(7).generate("Gen"), new ProgramGenerator(7).generate("Gen"));
+        assertNotEquals(new ProgramGenerator(7).generate("Gen"), new ProgramGenerator(8).generate("Gen"));
+    }
+
+    @Test
+    public void knobsChangeTheSize() {
+        String code = new ProgramGenerator(1).methods(30).statements(50).locals(12).generate("Gen");
+
+        // the 30 methods, the varargs method and main
+        assertEquals(32, code.split("public ", -1).length - 1);
+        assertTrue(code.contains("int x8;"));
+        assertTrue(code.contains("boolean b2;"));
+        assertTrue(code.length() > new ProgramGenerator(1).methods(30).statements(5).generate("Gen").length());
+    }
+
+    @Test
+    public void generatedProgramsCompile() {
+        for (int seed = 0; seed < 20; seed++) {
+            String code = new ProgramGenerator(seed)
+                    .methods(3)
+                    .statements(15)
+                    .nestingDepth(seed % 4)
+                    .expressionDepth(seed % 5)
+                    .locals(2 + seed % 7)
+                    .varargsCalls(seed % 3)
+                    .generate("Gen" + seed);
+
+            assertCompiles(code, config(false, -1));
+            assertCompiles(code, config(true, -1));
+            assertCompiles(code, config(false, 0));
+        }
+    }
+
+    @Test
+    public void generatedProgramsRun() {
+        for (int seed = 0; seed < 10; seed++) {
+            String code = new ProgramGenerator(seed)
+                    .methods(3)
+                    .statements(15)
+                    .nestingDepth(seed % 4)
+                    .expressionDepth(seed % 5)
+                    .locals(2 + seed % 7)
+                    .generate("Gen" + seed);
+
+            // a wrong .limit stack makes the class fail verification when it is loaded
+            String output = run(code, config(false, -1));
+            assertFalse(output, output.contains("VerifyError"));
+            assertEquals(output, run(code, config(false, 0)));
+        }
+    }
+
+    private static String run(String code, Map<String, String> config) {
+        var result = new CompilerPipeline().compile(code, config);
+        assertFalse(result.getReports().toString(), result.hasErrors());
+        return new InMemoryRunner().run(result.toJasminResult(config));
+    }
+
+    @Test
+    public void largeProgramsCompile() {
+        assertCompiles(new ProgramGenerator(2).methods(300).generate("ManyMethods"), config(true, -1));
+        assertCompiles(new ProgramGenerator(3).methods(1).statements(2000).generate("LongMethod"), config(true, -1));
+        assertCompiles(new ProgramGenerator(4).methods(5).locals(200).nestingDepth(4).expressionDepth(5)
+                .generate("ManyLocals"), config(true, 0));
+    }
+}
@@ -0,0 +1,54 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RegisterCoalescingTest {
+
+    private static final String CODE = """
+            import io;
+            class Copies {
+                public int copy(int n) {
+                    int a;
+                    int b;
+                    int c;
+                    a = n + 1;
+                    b = a;
+                    c = b;
+                    while (c < 10) {
+                        b = c;
+                        c = b + 2;
+                    }
+                    return c;
+                }
+                public static void main(String[] args) {
+                    Copies copies;
+                    copies = new Copies();
+                    io.println(copies.copy(1));
+                }
+            }
+            """;
+
+    @Test
+    public void copiesShareARegister() {
+        var config = CompilerConfig.getDefault();
+        config.put("registerAllocation", "0");
+
+        var result = new CompilerPipeline().compile(CODE, config);
+        assertFalse(result.getReports().toString(), result.hasErrors());
+
+        var method = Pattern.compile("\\.method public copy\\(I\\)I.*?\\.end method", Pattern.DOTALL)
+                .matcher(result.getJasminCode());
+        method.find();
+
+        // this, n, the loop condition and a single register for a, b and c
+        assertTrue(method.group(), method.group().contains(".limit locals 4"));
+        assertFalse(method.group(), Pattern.compile("iload_3\\s+istore_3").matcher(method.group()).find());
+        assertEquals("10", result.toJasminResult(config).run().strip());
+    }
+}
@@ -0,0 +1,78 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RegisterSpillingTest {
+
+    private static final String CODE = """
+            import io;
+            class Spill {
+                int acc;
+                public int work(int n) {
+                    int a; int b; int c; int d; int e; int i; boolean big;
+                    a = 1; b = 2; c = 3; d = 4; e = 5; i = 0; acc = 0;
+                    while (i < n) {
+                        a = a + b; b = b + c; c = c + d; d = 7 - d; e = e + a;
+                        acc = acc + a;
+                        i = i + 1;
+                    }
+                    big = 100 < a;
+                    if (big) { io.println(1); } else { io.println(0); }
+                    io.println(a + b + c + d + e);
+                    return acc;
+                }
+                public static void main(String[] args) {
+                    Spill s;
+                    s = new Spill();
+                    io.println(s.work(5));
+                }
+            }
+            """;
+
+    private static Map<String, String> config(int registerAllocation) {
+        var config = CompilerConfig.getDefault();
+        config.put("registerAllocation", String.valueOf(registerAllocation));
+        return config;
+    }
+
+    private static int getLocals(CompilationResult result, String method) {
+        var matcher = Pattern.compile("\\.method public " + method + "\\(.*?\\.limit locals (\\d+)", Pattern.DOTALL)
+                .matcher(result.getJasminCode());
+        assertTrue(matcher.find());
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    @Test
+    public void spilledCodeRunsBelowTheMinimum() {
+        var pipeline = new CompilerPipeline();
+        var expected = pipeline.compile(CODE, config(-1));
+        String expectedOutput = expected.toJasminResult(config(-1)).run();
+
+        int minimum = getLocals(pipeline.compile(CODE, config(0)), "work");
+
+        for (int registers = minimum - 1; registers >= 5; registers--) {
+            var spilled = pipeline.compile(CODE, config(registers));
+
+            assertFalse(spilled.getReports().toString(), spilled.hasErrors());
+            assertTrue(getLocals(spilled, "work") <= registers);
+            assertEquals(expectedOutput, spilled.toJasminResult(config(registers)).run());
+        }
+    }
+
+    @Test
+    public void tooFewRegistersForTheSpilledCode() {
+        // this, n, the spill array and the two operands of an addition
+        var result = new CompilerPipeline().compile(CODE, config(4));
+
+        assertTrue(result.hasErrors());
+        assertTrue(result.getReports().toString(), result.getReports().toString()
+                .contains("Can't allocate 4 registers, minimum 5 required"));
+    }
+}
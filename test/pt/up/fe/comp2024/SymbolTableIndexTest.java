@@ -0,0 +1,109 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SymbolTableIndexTest {
+
+    private static JmmSymbolTable build(String code) {
+        var parserResult = new JmmParserImpl().parse(code, CompilerConfig.getDefault());
+        return JmmSymbolTableBuilder.build(parserResult.getRootNode());
+    }
+
+    /**
+     * The variable found by going through the locals, the parameters and the fields of the method, in order.
+     */
+    private static Symbol scan(SymbolTable table, String method, String name) {
+        var symbols = new ArrayList<>(table.getLocalVariables(method));
+        symbols.addAll(table.getParameters(method));
+        symbols.addAll(table.getFields());
+        return symbols.stream().filter(symbol -> symbol.getName().equals(name)).findFirst().orElse(null);
+    }
+
+    @Test
+    public void localsHideParametersThatHideFields() {
+        var table = build("""
+                class Scopes {
+                    int a;
+                    int b;
+                    boolean c;
+                    public int method(int b, boolean c, int d) {
+                        int[] c;
+                        return 0;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """);
+
+        var a = table.resolve("method", "a");
+        assertEquals(ResolvedSymbol.Scope.FIELD, a.scope());
+        assertEquals(0, a.index());
+
+        var b = table.resolve("method", "b");
+        assertEquals(ResolvedSymbol.Scope.PARAM, b.scope());
+        assertEquals(0, b.index());
+
+        var c = table.resolve("method", "c");
+        assertEquals(ResolvedSymbol.Scope.LOCAL, c.scope());
+        assertTrue(c.getType().isArray());
+
+        assertEquals(2, table.resolve("method", "d").index());
+        assertEquals(ResolvedSymbol.Scope.FIELD, table.resolve("main", "b").scope());
+        assertEquals(ResolvedSymbol.Scope.FIELD, table.getField("b").scope());
+
+        assertNull(table.resolve("method", "e"));
+        assertNull(table.resolve("main", "d"));
+    }
+
+    @Test
+    public void testProgramsResolveAsTheirLists() throws IOException {
+        List<Path> files;
+        try (var paths = Files.walk(Path.of("test/pt/up/fe/comp"))) {
+            files = paths.filter(path -> path.toString().endsWith(".jmm")).sorted().toList();
+        }
+        assertFalse(files.isEmpty());
+
+        for (var file : files) {
+            var parserResult = new JmmParserImpl().parse(SpecsIo.read(file.toFile()), CompilerConfig.getDefault());
+            if (parserResult.getRootNode() == null) continue;
+
+            var table = JmmSymbolTableBuilder.build(parserResult.getRootNode());
+            for (var method : table.getMethods()) {
+                var names = new ArrayList<String>();
+                table.getLocalVariables(method).forEach(symbol -> names.add(symbol.getName()));
+                table.getParameters(method).forEach(symbol -> names.add(symbol.getName()));
+                table.getFields().forEach(symbol -> names.add(symbol.getName()));
+                names.add("notDeclared");
+
+                for (var name : names) {
+                    var resolved = table.resolve(method, name);
+                    var expected = scan(table, method, name);
+                    if (expected == null) {
+                        assertNull(file + " " + method + " " + name, resolved);
+                    } else {
+                        assertSame(file + " " + method + " " + name, expected, resolved.symbol());
+                    }
+                }
+            }
+        }
+    }
+}
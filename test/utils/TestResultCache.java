@@ -0,0 +1,57 @@
+package utils;
+
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The stages of {@link TestUtils} that the checkpoint tests repeat, remembering their results for the rest of the
+ * test run.
+ * <p>
+ * Only the stages that are asked for more than once with the same input are cached: the analysis of a program, which
+ * several symbol table tests share, and the Jasmin generated from an OLLIR file, which several Jasmin tests share.
+ * Each stage is keyed on the code and the config and always computed by {@link TestUtils}. The results are shared by
+ * every test that asks for them and must not be changed. Failures are not cached, so a test that expects an exception
+ * gets it every time. Programs are still run by {@link JasminResult#run()}, in a JVM of their own.
+ */
+public class TestResultCache {
+
+    private record Key(String stage, String code, Map<String, String> config) {
+    }
+
+    private static final Map<Key, Object> results = new ConcurrentHashMap<>();
+
+    public static JmmSemanticsResult analyse(String code) {
+        return get("analyse", code, Collections.emptyMap(), () -> TestUtils.analyse(code));
+    }
+
+    public static JasminResult backend(OllirResult ollirResult) {
+        return get("backend", ollirResult.getOllirCode(), ollirResult.getConfig(),
+                () -> TestUtils.backend(ollirResult));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T get(String stage, String code, Map<String, String> config, Supplier<T> compute) {
+        // the config may be changed by the test after the call
+        var key = new Key(stage, code, new HashMap<>(config));
+
+        var result = results.get(key);
+        if (result == null) {
+            // computed outside of the map, as a stage may take long and tests in other threads may want other keys
+            result = compute.get();
+            var previous = results.putIfAbsent(key, result);
+            if (previous != null) {
+                result = previous;
+            }
+        }
+
+        return (T) result;
+    }
+}